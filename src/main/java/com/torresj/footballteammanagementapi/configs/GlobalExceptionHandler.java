@@ -4,6 +4,7 @@ import com.torresj.footballteammanagementapi.exceptions.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
@@ -30,6 +31,15 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     return problemDetail;
   }
 
+  @ExceptionHandler(MemberUsernameTakenException.class)
+  ProblemDetail memberUsernameTakenException(MemberUsernameTakenException e) {
+    ProblemDetail problemDetail =
+        ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    problemDetail.setTitle("Username already taken");
+    log.error(e.toString());
+    return problemDetail;
+  }
+
   @ExceptionHandler(MemberBlockedException.class)
   ProblemDetail memberBlockedException(MemberBlockedException e) {
     ProblemDetail problemDetail =
@@ -75,6 +85,15 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     return problemDetail;
   }
 
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  ProblemDetail optimisticLockingFailureException(ObjectOptimisticLockingFailureException e) {
+    ProblemDetail problemDetail =
+            ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    problemDetail.setTitle("Concurrent modification");
+    log.error(e.toString());
+    return problemDetail;
+  }
+
   @ExceptionHandler(PlayerUnavailableException.class)
   ProblemDetail playerUnavailableException(PlayerUnavailableException e) {
     ProblemDetail problemDetail =
@@ -83,4 +102,13 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     log.error(e.toString());
     return problemDetail;
   }
+
+  @ExceptionHandler(InvalidPageException.class)
+  ProblemDetail invalidPageException(InvalidPageException e) {
+    ProblemDetail problemDetail =
+            ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    problemDetail.setTitle("Invalid page");
+    log.error(e.toString());
+    return problemDetail;
+  }
 }
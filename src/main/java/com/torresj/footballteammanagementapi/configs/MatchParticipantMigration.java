@@ -0,0 +1,72 @@
+package com.torresj.footballteammanagementapi.configs;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Moves rosters from the old per-status @ElementCollection tables into match_participant.
+// Runs once: the legacy tables are dropped after the copy, so later startups are a no-op.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class MatchParticipantMigration implements ApplicationRunner {
+
+  private static final String LEGACY_TABLE = "match_entity_confirmed_players";
+
+  private static final List<String> MIGRATION =
+      List.of(
+          "insert into match_participant (match_id, member_id, status) "
+              + "select match_entity_id, confirmed_players, 0 from match_entity_confirmed_players",
+          "insert into match_participant (match_id, member_id, status) "
+              + "select match_entity_id, un_confirmed_players, 1 from match_entity_un_confirmed_players",
+          "insert into match_participant (match_id, member_id, status) "
+              + "select match_entity_id, not_available_players, 2 from match_entity_not_available_players",
+          "update match_participant set team = 0 where member_id in (select t.teamaplayers "
+              + "from match_entity_teamaplayers t where t.match_entity_id = match_participant.match_id)",
+          "update match_participant set team = 1 where member_id in (select t.teambplayers "
+              + "from match_entity_teambplayers t where t.match_entity_id = match_participant.match_id)",
+          "insert into match_participant (match_id, guest, status, team) "
+              + "select match_entity_id, teamaguests, 0, 0 from match_entity_teamaguests",
+          "insert into match_participant (match_id, guest, status, team) "
+              + "select match_entity_id, teambguests, 0, 1 from match_entity_teambguests",
+          "update match_participant set captain = 0 where member_id = (select m.captain_teama "
+              + "from match_entity m where m.id = match_participant.match_id)",
+          "update match_participant set captain = 1 where member_id = (select m.captain_teamb "
+              + "from match_entity m where m.id = match_participant.match_id)");
+
+  private static final List<String> LEGACY_TABLES =
+      List.of(
+          "match_entity_confirmed_players",
+          "match_entity_un_confirmed_players",
+          "match_entity_not_available_players",
+          "match_entity_teamaplayers",
+          "match_entity_teambplayers",
+          "match_entity_teamaguests",
+          "match_entity_teambguests");
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    try {
+      jdbcTemplate.queryForObject("select count(*) from " + LEGACY_TABLE, Long.class);
+    } catch (DataAccessException e) {
+      return;
+    }
+
+    log.info("[MIGRATION] Moving match rosters to match_participant");
+    transactionTemplate.executeWithoutResult(status -> MIGRATION.forEach(jdbcTemplate::update));
+    LEGACY_TABLES.forEach(table -> jdbcTemplate.execute("drop table " + table));
+    log.info("[MIGRATION] Match rosters migrated");
+  }
+}
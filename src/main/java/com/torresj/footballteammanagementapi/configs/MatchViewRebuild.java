@@ -0,0 +1,38 @@
+package com.torresj.footballteammanagementapi.configs;
+
+import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.MatchViewRepository;
+import com.torresj.footballteammanagementapi.services.MatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Backfills the match read model the first time it is deployed over existing matches or when views
+// predate their etag, and re-renders every view when started with --rebuild-match-views
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class MatchViewRebuild implements ApplicationRunner {
+
+  private static final String REBUILD_OPTION = "rebuild-match-views";
+
+  private final MatchService matchService;
+  private final MatchRepository matchRepository;
+  private final MatchViewRepository matchViewRepository;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (!args.containsOption(REBUILD_OPTION)
+        && !matchViewRepository.existsByEtagIsNull()
+        && (matchViewRepository.count() > 0 || matchRepository.count() == 0)) return;
+
+    log.info("[MIGRATION] Rendering match views");
+    var rendered = matchService.rebuildViews();
+    log.info("[MIGRATION] " + rendered + " match views rendered");
+  }
+}
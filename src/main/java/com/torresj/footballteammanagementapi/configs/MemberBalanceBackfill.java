@@ -0,0 +1,30 @@
+package com.torresj.footballteammanagementapi.configs;
+
+import com.torresj.footballteammanagementapi.repositories.MemberBalanceRepository;
+import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.services.MovementService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Fills the running balances the first time they are deployed over an existing movement history
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemberBalanceBackfill implements ApplicationRunner {
+
+  private final MovementService movementService;
+  private final MovementRepository movementRepository;
+  private final MemberBalanceRepository memberBalanceRepository;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (memberBalanceRepository.count() > 0 || movementRepository.count() == 0) return;
+
+    log.info("[MIGRATION] Computing member balances");
+    var filled = movementService.reconcileBalances();
+    log.info("[MIGRATION] " + filled + " member balances computed");
+  }
+}
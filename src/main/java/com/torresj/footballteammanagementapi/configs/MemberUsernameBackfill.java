@@ -0,0 +1,62 @@
+package com.torresj.footballteammanagementapi.configs;
+
+import com.torresj.footballteammanagementapi.repositories.MemberRepository;
+import com.torresj.footballteammanagementapi.utils.Usernames;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+// Derives the username of members created before the column existed. New and updated members
+// get it from MemberEntity itself, so later startups update nothing. Legacy rows that only differ
+// in case would collide on the unique username: they are logged and left without one until an
+// admin renames them, instead of aborting the startup
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class MemberUsernameBackfill implements ApplicationRunner {
+
+  private final MemberRepository memberRepository;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    var pending = memberRepository.findByUsernameIsNull();
+    if (pending.isEmpty()) return;
+
+    var collisions =
+        pending.stream()
+            .collect(
+                Collectors.groupingBy(
+                    member -> Usernames.of(member.getName(), member.getSurname()),
+                    Collectors.counting()))
+            .entrySet()
+            .stream()
+            .filter(entry -> entry.getValue() > 1)
+            .map(entry -> entry.getKey())
+            .collect(Collectors.toCollection(HashSet::new));
+
+    var filled = 0;
+    for (var member : pending) {
+      var username = Usernames.of(member.getName(), member.getSurname());
+      if (collisions.contains(username) || memberRepository.existsByUsername(username)) {
+        log.warn(
+            "[MIGRATION] Member " + member.getId() + " skipped, username " + username + " is taken");
+        continue;
+      }
+      try {
+        filled += memberRepository.updateUsername(member.getId(), username);
+      } catch (DataIntegrityViolationException e) {
+        log.warn(
+            "[MIGRATION] Member " + member.getId() + " skipped, username " + username + " is taken");
+      }
+    }
+    if (filled > 0) log.info("[MIGRATION] " + filled + " member usernames filled");
+  }
+}
@@ -1,6 +1,12 @@
 package com.torresj.footballteammanagementapi.configs;
 
+import com.torresj.footballteammanagementapi.interceptors.IdempotencyBodyFilter;
+import com.torresj.footballteammanagementapi.interceptors.IdempotencyInterceptor;
 import com.torresj.footballteammanagementapi.interceptors.LoggerInterceptor;
+import com.torresj.footballteammanagementapi.services.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -8,10 +14,25 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableWebMvc
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
 
+  private final IdempotencyService idempotencyService;
+
   @Override
   public void addInterceptors(InterceptorRegistry registry) {
     registry.addInterceptor(new LoggerInterceptor());
+    registry
+        .addInterceptor(new IdempotencyInterceptor(idempotencyService))
+        .addPathPatterns(IdempotencyInterceptor.PATHS);
+  }
+
+  // Servlet url patterns cannot hold inner wildcards, so the filter is mapped under /v1/matches
+  // and skips every path the interceptor does not handle
+  @Bean
+  public FilterRegistrationBean<IdempotencyBodyFilter> idempotencyBodyFilter() {
+    var registration = new FilterRegistrationBean<>(new IdempotencyBodyFilter());
+    registration.addUrlPatterns("/v1/matches/*");
+    return registration;
   }
 }
@@ -1,11 +1,17 @@
 package com.torresj.footballteammanagementapi.controllers;
 
 import com.torresj.footballteammanagementapi.dtos.GuestRequestDto;
+import com.torresj.footballteammanagementapi.dtos.LineupRequestDto;
 import com.torresj.footballteammanagementapi.dtos.AddPlayerRequestDto;
 import com.torresj.footballteammanagementapi.dtos.CreateMatchDto;
+import com.torresj.footballteammanagementapi.dtos.GeneratedTeamsDto;
 import com.torresj.footballteammanagementapi.dtos.MatchDto;
+import com.torresj.footballteammanagementapi.dtos.MatchSummaryDto;
+import com.torresj.footballteammanagementapi.dtos.RosterEventDto;
 import com.torresj.footballteammanagementapi.exceptions.*;
+import com.torresj.footballteammanagementapi.services.MatchEventService;
 import com.torresj.footballteammanagementapi.services.MatchService;
+import com.torresj.footballteammanagementapi.services.TeamGeneratorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -16,12 +22,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -31,10 +42,12 @@ import java.util.List;
 public class MatchController {
 
     private final MatchService matchService;
+    private final MatchEventService matchEventService;
+    private final TeamGeneratorService teamGeneratorService;
 
     @GetMapping
     @SecurityRequirement(name = "Bearer Authentication")
-    @Operation(summary = "Get all matches")
+    @Operation(summary = "Get closed matches, newest first")
     @ApiResponses(
             value = {
                     @ApiResponse(
@@ -44,15 +57,75 @@ public class MatchController {
                                     @Content(
                                             mediaType = "application/json",
                                             array = @ArraySchema(schema = @Schema(implementation = MatchDto.class)))
-                            })
+                            }),
+                    @ApiResponse(responseCode = "400", description = "Invalid page", content = @Content)
             })
-    ResponseEntity<List<MatchDto>> getAll() {
+    ResponseEntity<List<MatchDto>> getAll(
+            @Parameter(description = "Match day of the last match already received, sent with afterId")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate afterMatchDay,
+            @Parameter(description = "Id of the last match already received, sent with afterMatchDay")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Number of matches to return, 1 to 100, 20 by default")
+            @RequestParam(required = false) Integer elements)
+            throws InvalidPageException {
         log.info("[MATCHES] Getting matches ...");
-        var matches = matchService.get();
+        var matches = matchService.get(afterMatchDay, afterId, elements);
         log.info("[MATCHES] Matches found: " + matches.size());
         return ResponseEntity.ok(matches);
     }
 
+    @GetMapping("/summary")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Get closed matches summaries, newest first")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Match summaries returned",
+                            content = {
+                                    @Content(
+                                            mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(implementation = MatchSummaryDto.class)))
+                            }),
+                    @ApiResponse(responseCode = "400", description = "Invalid page", content = @Content)
+            })
+    ResponseEntity<List<MatchSummaryDto>> getSummaries(
+            @Parameter(description = "Match day of the last match already received, sent with afterId")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate afterMatchDay,
+            @Parameter(description = "Id of the last match already received, sent with afterMatchDay")
+            @RequestParam(required = false) Long afterId,
+            @Parameter(description = "Number of matches to return, 1 to 100, 20 by default")
+            @RequestParam(required = false) Integer elements)
+            throws InvalidPageException {
+        log.info("[MATCHES] Getting match summaries ...");
+        var matches = matchService.getSummaries(afterMatchDay, afterId, elements);
+        log.info("[MATCHES] Match summaries found: " + matches.size());
+        return ResponseEntity.ok(matches);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Subscribe to roster changes")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Roster events stream opened",
+                            content = {
+                                    @Content(
+                                            mediaType = "text/event-stream",
+                                            schema = @Schema(implementation = RosterEventDto.class))
+                            }),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
+            })
+    SseEmitter events() {
+        log.info("[MATCHES] Subscribing to roster events");
+        return matchEventService.subscribe();
+    }
+
     @GetMapping("/{id}")
     @SecurityRequirement(name = "Bearer Authentication")
     @Operation(summary = "Get match by ID")
@@ -66,17 +139,23 @@ public class MatchController {
                                             mediaType = "application/json",
                                             schema = @Schema(implementation = MatchDto.class))
                             }),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
                     @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
             })
     @SecurityRequirement(name = "Bearer Authentication")
-    ResponseEntity<MatchDto> get(@Parameter(description = "Match id") @PathVariable long id)
+    ResponseEntity<MatchDto> get(@Parameter(description = "Match id") @PathVariable long id, WebRequest request)
             throws MatchNotFoundException {
         log.info("[MATCHES] Getting match " + id);
+        var eTag = matchService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            log.info("[MATCHES] Match not modified");
+            return null;
+        }
         var match = matchService.get(id);
         log.info("[MATCHES] Match found");
-        return ResponseEntity.ok(match);
+        return ResponseEntity.ok().eTag(eTag).body(match);
     }
 
     @GetMapping("/next")
@@ -92,17 +171,23 @@ public class MatchController {
                                             mediaType = "application/json",
                                             schema = @Schema(implementation = MatchDto.class))
                             }),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
                     @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
             })
     @SecurityRequirement(name = "Bearer Authentication")
-    ResponseEntity<MatchDto> get()
+    ResponseEntity<MatchDto> get(WebRequest request)
             throws NextMatchException {
         log.info("[MATCHES] Getting next match ");
+        var eTag = matchService.getNextETag();
+        if (request.checkNotModified(eTag)) {
+            log.info("[MATCHES] Next match not modified");
+            return null;
+        }
         var match = matchService.getNext();
         log.info("[MATCHES] Next match found");
-        return ResponseEntity.ok(match);
+        return ResponseEntity.ok().eTag(eTag).body(match);
     }
 
     @Secured("ROLE_ADMIN")
@@ -238,6 +323,35 @@ public class MatchController {
         return ResponseEntity.ok().build();
     }
 
+    @Secured("ROLE_ADMIN")
+    @PutMapping("/{matchId}/lineup")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Set both team lineups, guests and captains")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Lineup set",
+                            content = {@Content()}),
+                    @ApiResponse(responseCode = "400", description = "Player not available", content = @Content),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+            })
+    ResponseEntity<Void> setLineup(
+            @Parameter(description = "Match id") @PathVariable long matchId,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Players, guests and captains of each team",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = LineupRequestDto.class)))
+            @RequestBody LineupRequestDto lineup)
+            throws MatchNotFoundException, PlayerUnavailableException {
+        log.info("[MATCHES] Setting lineup for match " + matchId);
+        matchService.setLineup(matchId, lineup);
+        log.info("[MATCHES] Lineup set");
+        return ResponseEntity.ok().build();
+    }
+
     @Secured("ROLE_ADMIN")
     @DeleteMapping("/{matchId}/players/{playerId}/teama")
     @SecurityRequirement(name = "Bearer Authentication")
@@ -449,4 +563,58 @@ public class MatchController {
         log.info("[MATCHES] Player added");
         return ResponseEntity.ok().build();
     }
+
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/{matchId}/captains")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Pick captains for both teams")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Captains added",
+                            content = {@Content()}),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+            })
+    ResponseEntity<Void> setCaptains(
+            @Parameter(description = "Match id") @PathVariable long matchId)
+            throws MatchNotFoundException {
+        log.info("[MATCHES] Picking captains for match " + matchId);
+        matchService.setRandomCaptains(matchId);
+        log.info("[MATCHES] Captains added");
+        return ResponseEntity.ok().build();
+    }
+
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/{matchId}/teams")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Generate balanced teams from confirmed players and guests")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Teams generated",
+                            content = {
+                                    @Content(
+                                            mediaType = "application/json",
+                                            schema = @Schema(implementation = GeneratedTeamsDto.class))
+                            }),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+                    @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
+            })
+    ResponseEntity<GeneratedTeamsDto> generateTeams(
+            @Parameter(description = "Match id") @PathVariable long matchId,
+            @Parameter(description = "Seed to reproduce a previous generation")
+            @RequestParam(required = false) Long seed,
+            @Parameter(description = "Save the generated teams as the match lineup")
+            @RequestParam(defaultValue = "false") boolean apply)
+            throws MatchNotFoundException, PlayerUnavailableException {
+        log.info("[MATCHES] Generating teams for match " + matchId);
+        var teams = teamGeneratorService.generate(matchId, seed, apply);
+        log.info("[MATCHES] Teams generated with seed " + teams.seed());
+        return ResponseEntity.ok(teams);
+    }
 }
@@ -1,8 +1,11 @@
 package com.torresj.footballteammanagementapi.controllers;
 
 import com.torresj.footballteammanagementapi.dtos.*;
+import com.torresj.footballteammanagementapi.enums.MemberSort;
+import com.torresj.footballteammanagementapi.exceptions.InvalidPageException;
 import com.torresj.footballteammanagementapi.exceptions.MemberAlreadyExistsException;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
+import com.torresj.footballteammanagementapi.exceptions.MemberUsernameTakenException;
 import com.torresj.footballteammanagementapi.services.MemberService;
 import com.torresj.footballteammanagementapi.services.MovementService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,10 +23,12 @@ import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
@@ -32,6 +37,8 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final MemberService memberService;
     private final MovementService movementService;
     private final PasswordEncoder encoder;
@@ -51,13 +58,35 @@ public class MemberController {
                                     @Content(
                                             mediaType = "application/json",
                                             array = @ArraySchema(schema = @Schema(implementation = MemberDto.class)))
-                            })
+                            }),
+                    @ApiResponse(responseCode = "400", description = "Invalid page", content = @Content)
             })
-    ResponseEntity<List<MemberDto>> getAll() {
+    ResponseEntity<List<MemberDto>> getAll(
+            @Parameter(description = "Number of page. The first 20 members are returned when omitted together with elements")
+            @RequestParam(required = false) Integer page,
+            @Parameter(description = "Number of elements per page, 1 to 100")
+            @RequestParam(required = false) Integer elements,
+            @Parameter(description = "Sort by NAME, BALANCE or CAPTAINCIES")
+            @RequestParam(required = false) MemberSort sort,
+            @Parameter(description = "Sort direction, ASC or DESC")
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @Parameter(description = "Filter by injured status")
+            @RequestParam(required = false) Boolean injured,
+            @Parameter(description = "Filter by blocked status")
+            @RequestParam(required = false) Boolean blocked,
+            @Parameter(description = "Only members whose balance is below this amount")
+            @RequestParam(required = false) Double balanceBelow,
+            @Parameter(description = "Name or alias prefix")
+            @RequestParam(required = false) String search
+    ) throws InvalidPageException {
         log.info("[MEMBERS] Getting members ...");
-        var members = memberService.get();
-        log.info("[MEMBERS] Members found: " + members.size());
-        return ResponseEntity.ok(members);
+        var result =
+                memberService.get(
+                        injured, blocked, balanceBelow, search, sort, direction, elements, page);
+        log.info("[MEMBERS] Members found: " + result.getContent().size());
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(result.getTotalElements()))
+                .body(result.getContent());
     }
 
     @GetMapping("/{id}")
@@ -73,17 +102,23 @@ public class MemberController {
                                             mediaType = "application/json",
                                             schema = @Schema(implementation = MemberDto.class))
                             }),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
                     @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
             })
     @SecurityRequirement(name = "Bearer Authentication")
-    ResponseEntity<MemberDto> get(@Parameter(description = "Member id") @PathVariable long id)
+    ResponseEntity<MemberDto> get(@Parameter(description = "Member id") @PathVariable long id, WebRequest request)
             throws MemberNotFoundException {
         log.info("[MEMBERS] Getting member " + id);
+        var eTag = memberService.getETag(id);
+        if (request.checkNotModified(eTag)) {
+            log.info("[MEMBERS] Member not modified");
+            return null;
+        }
         var member = memberService.get(id);
         log.info("[MEMBERS] Member found");
-        return ResponseEntity.ok(member);
+        return ResponseEntity.ok().eTag(eTag).body(member);
     }
 
     @GetMapping("/me")
@@ -99,17 +134,23 @@ public class MemberController {
                                             mediaType = "application/json",
                                             schema = @Schema(implementation = MemberDto.class))
                             }),
+                    @ApiResponse(responseCode = "304", description = "Not modified", content = @Content),
                     @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
                     @ApiResponse(responseCode = "403", description = "Forbidden", content = @Content),
                     @ApiResponse(responseCode = "404", description = "Not found", content = @Content),
             })
     @SecurityRequirement(name = "Bearer Authentication")
-    ResponseEntity<MemberDto> getMe(Principal principal)
+    ResponseEntity<MemberDto> getMe(Principal principal, WebRequest request)
             throws MemberNotFoundException {
         log.info("[MEMBERS] Getting member " + principal.getName());
+        var eTag = memberService.getETag(principal.getName());
+        if (request.checkNotModified(eTag)) {
+            log.info("[MEMBERS] Member not modified");
+            return null;
+        }
         var member = memberService.get(principal.getName());
         log.info("[MEMBERS] Member found");
-        return ResponseEntity.ok(member);
+        return ResponseEntity.ok().eTag(eTag).body(member);
     }
 
     @GetMapping("/{id}/movements")
@@ -191,6 +232,10 @@ public class MemberController {
                     @ApiResponse(
                             responseCode = "404",
                             description = "Member Not Found",
+                            content = {@Content()}),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Username already taken",
                             content = {@Content()})
             })
     @SecurityRequirement(name = "Bearer Authentication")
@@ -202,7 +247,7 @@ public class MemberController {
                     content = @Content(schema = @Schema(implementation = UpdateMemberDto.class)))
             @RequestBody
             UpdateMemberDto request)
-            throws MemberNotFoundException {
+            throws MemberNotFoundException, MemberUsernameTakenException {
         log.info("[MEMBERS] Updating user " + request.name() + " " + request.surname());
         memberService.update(
                 id,
@@ -353,4 +398,38 @@ public class MemberController {
         log.info("[MEMBERS] Member " + id + " blocked status updated");
         return ResponseEntity.ok().build();
     }
+
+    @Secured("ROLE_ADMIN")
+    @PatchMapping("/{id}/rating")
+    @Operation(summary = "Change rating of a member, from 1 to 10")
+    @ApiResponses(
+            value = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "member updated",
+                            content = {@Content()}),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "rating out of range",
+                            content = {@Content()}),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "member not found",
+                            content = {@Content()})
+            })
+    @SecurityRequirement(name = "Bearer Authentication")
+    ResponseEntity<Void> updateRating(
+            @Parameter(description = "Member id") @PathVariable long id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Update Member",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = RequestRatingDto.class)))
+            @RequestBody
+            RequestRatingDto request) throws MemberNotFoundException {
+        log.info("[MEMBERS] Updating member " + id + " rating to " + request.rating());
+        if (request.rating() < 1 || request.rating() > 10) return ResponseEntity.badRequest().build();
+        memberService.setRating(id, request.rating());
+        log.info("[MEMBERS] Member " + id + " rating updated");
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,7 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+import com.torresj.footballteammanagementapi.enums.Team;
+import java.time.LocalDate;
+
+public record CaptainCandidateDto(
+    Long memberId, Team team, int captaincies, LocalDate lastCaptainDay) {}
@@ -0,0 +1,6 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+import java.util.Map;
+
+public record CloseMatchesReportDto(
+    int matchesClosed, int finesCreated, long elapsedMillis, Map<Long, String> failures) {}
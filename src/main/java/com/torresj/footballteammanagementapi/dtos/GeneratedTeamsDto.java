@@ -0,0 +1,12 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+import java.util.List;
+
+public record GeneratedTeamsDto(
+    long seed,
+    List<MatchPlayerDto> teamAPlayers,
+    List<MatchPlayerDto> teamBPlayers,
+    List<String> teamAGuests,
+    List<String> teamBGuests,
+    double teamAStrength,
+    double teamBStrength) {}
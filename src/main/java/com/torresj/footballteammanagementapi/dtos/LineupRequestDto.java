@@ -0,0 +1,11 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+import java.util.List;
+
+public record LineupRequestDto(
+    List<Long> teamAPlayers,
+    List<Long> teamBPlayers,
+    List<String> teamAGuests,
+    List<String> teamBGuests,
+    Long captainTeamA,
+    Long captainTeamB) {}
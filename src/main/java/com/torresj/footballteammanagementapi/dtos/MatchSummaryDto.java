@@ -0,0 +1,16 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+public record MatchSummaryDto(
+        long id,
+        String matchDay,
+        boolean closed,
+        long nConfirmedPlayers,
+        long nUnConfirmedPlayers,
+        long nNotAvailablePlayers,
+        long nTeamAPlayers,
+        long nTeamBPlayers,
+        long nTeamAGuests,
+        long nTeamBGuests,
+        MatchPlayerDto captainTeamA,
+        MatchPlayerDto captainTeamB) {
+}
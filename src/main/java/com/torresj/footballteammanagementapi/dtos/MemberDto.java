@@ -12,4 +12,5 @@ public record MemberDto(
     Role role,
     double balance,
     boolean injured,
-    boolean blocked) {}
+    boolean blocked,
+    int rating) {}
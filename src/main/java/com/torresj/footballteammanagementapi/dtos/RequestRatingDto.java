@@ -0,0 +1,3 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+public record RequestRatingDto(int rating) {}
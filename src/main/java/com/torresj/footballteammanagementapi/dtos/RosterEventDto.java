@@ -0,0 +1,7 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+import com.torresj.footballteammanagementapi.enums.RosterEventType;
+import com.torresj.footballteammanagementapi.enums.Team;
+
+public record RosterEventDto(
+    long matchId, RosterEventType type, Team team, MatchPlayerDto player, String guest) {}
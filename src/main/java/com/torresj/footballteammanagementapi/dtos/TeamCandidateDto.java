@@ -0,0 +1,3 @@
+package com.torresj.footballteammanagementapi.dtos;
+
+public record TeamCandidateDto(Long memberId, int rating, int captaincies, Long attendance) {}
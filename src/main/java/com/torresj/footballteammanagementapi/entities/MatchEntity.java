@@ -1,54 +1,163 @@
 package com.torresj.footballteammanagementapi.entities;
 
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.enums.Team;
+import com.torresj.footballteammanagementapi.utils.RosterBitmap;
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import lombok.*;
 
 @Entity
+@Table(indexes = @Index(columnList = "closed, match_day, id"))
+@NamedEntityGraph(
+        name = MatchEntity.WITH_PARTICIPANTS,
+        attributeNodes = @NamedAttributeNode("participants"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder(toBuilder = true)
 @Getter
 public class MatchEntity {
+    public static final String WITH_PARTICIPANTS = "MatchEntity.participants";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(updatable = false)
     private Long id;
 
-    @Column(columnDefinition = "DATE")
+    @Column(name = "match_day", columnDefinition = "DATE")
     private LocalDate matchDay;
 
-    @Column
-    private Long captainTeamA;
+    @OneToMany(mappedBy = "match", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @Builder.Default
+    private Set<MatchParticipantEntity> participants = new HashSet<>();
 
     @Column
-    private Long captainTeamB;
+    @Setter
+    private boolean closed;
 
-    @ElementCollection(targetClass = Long.class, fetch = FetchType.EAGER)
-    private Set<Long> confirmedPlayers;
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private long version;
 
-    @ElementCollection(targetClass = Long.class, fetch = FetchType.EAGER)
-    private Set<Long> unConfirmedPlayers;
+    // Rosters frozen when the match is closed, decoded on demand
+    @Lob
+    @Getter(AccessLevel.NONE)
+    private byte[] confirmedRoster;
 
-    @ElementCollection(targetClass = Long.class, fetch = FetchType.EAGER)
-    private Set<Long> notAvailablePlayers;
+    @Lob
+    @Getter(AccessLevel.NONE)
+    private byte[] unConfirmedRoster;
 
-    @ElementCollection(targetClass = Long.class, fetch = FetchType.EAGER)
-    private List<Long> teamAPlayers;
+    @Lob
+    @Getter(AccessLevel.NONE)
+    private byte[] notAvailableRoster;
 
-    @ElementCollection(targetClass = Long.class, fetch = FetchType.EAGER)
-    private List<Long> teamBPlayers;
+    @Lob
+    @Getter(AccessLevel.NONE)
+    private byte[] finedRoster;
 
-    @ElementCollection(targetClass = String.class, fetch = FetchType.EAGER)
-    private List<String> teamAGuests;
+    public void archiveRosters(Collection<Long> fined) {
+        confirmedRoster = RosterBitmap.of(getConfirmedPlayers()).encode();
+        unConfirmedRoster = RosterBitmap.of(getUnConfirmedPlayers()).encode();
+        notAvailableRoster = RosterBitmap.of(getNotAvailablePlayers()).encode();
+        finedRoster = RosterBitmap.of(fined).encode();
+    }
 
-    @ElementCollection(targetClass = String.class, fetch = FetchType.EAGER)
-    private List<String> teamBGuests;
+    public RosterBitmap getConfirmedRoster() {
+        return getRoster(confirmedRoster, ParticipantStatus.CONFIRMED);
+    }
 
-    @Column
-    @Setter
-    private boolean closed;
+    public RosterBitmap getUnConfirmedRoster() {
+        return getRoster(unConfirmedRoster, ParticipantStatus.UNCONFIRMED);
+    }
+
+    public RosterBitmap getNotAvailableRoster() {
+        return getRoster(notAvailableRoster, ParticipantStatus.NOT_AVAILABLE);
+    }
+
+    // Empty for matches closed before rosters were archived
+    public RosterBitmap getFinedRoster() {
+        return RosterBitmap.decode(finedRoster);
+    }
+
+    public Set<Long> getConfirmedPlayers() {
+        return getPlayers(ParticipantStatus.CONFIRMED);
+    }
+
+    public Set<Long> getUnConfirmedPlayers() {
+        return getPlayers(ParticipantStatus.UNCONFIRMED);
+    }
+
+    public Set<Long> getNotAvailablePlayers() {
+        return getPlayers(ParticipantStatus.NOT_AVAILABLE);
+    }
+
+    public List<Long> getTeamAPlayers() {
+        return getTeamPlayers(Team.A);
+    }
+
+    public List<Long> getTeamBPlayers() {
+        return getTeamPlayers(Team.B);
+    }
+
+    public List<String> getTeamAGuests() {
+        return getTeamGuests(Team.A);
+    }
+
+    public List<String> getTeamBGuests() {
+        return getTeamGuests(Team.B);
+    }
+
+    public Long getCaptainTeamA() {
+        return getCaptain(Team.A);
+    }
+
+    public Long getCaptainTeamB() {
+        return getCaptain(Team.B);
+    }
+
+    private RosterBitmap getRoster(byte[] archived, ParticipantStatus status) {
+        return archived != null ? RosterBitmap.decode(archived) : RosterBitmap.of(getPlayers(status));
+    }
+
+    private Set<Long> getPlayers(ParticipantStatus status) {
+        return participants.stream()
+                .filter(participant -> participant.getMemberId() != null)
+                .filter(participant -> participant.getStatus() == status)
+                .map(MatchParticipantEntity::getMemberId)
+                .collect(Collectors.toSet());
+    }
+
+    private List<Long> getTeamPlayers(Team team) {
+        return participants.stream()
+                .filter(participant -> participant.getMemberId() != null)
+                .filter(participant -> participant.getTeam() == team)
+                .map(MatchParticipantEntity::getMemberId)
+                .toList();
+    }
+
+    private List<String> getTeamGuests(Team team) {
+        return participants.stream()
+                .filter(participant -> participant.getGuest() != null)
+                .filter(participant -> participant.getTeam() == team)
+                .map(MatchParticipantEntity::getGuest)
+                .toList();
+    }
+
+    private Long getCaptain(Team team) {
+        return participants.stream()
+                .filter(participant -> participant.getCaptain() == team)
+                .map(MatchParticipantEntity::getMemberId)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
 }
@@ -0,0 +1,46 @@
+package com.torresj.footballteammanagementapi.entities;
+
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.enums.Team;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(
+        name = "match_participant",
+        indexes = {@Index(columnList = "member_id"), @Index(columnList = "match_id, member_id")})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@Getter
+public class MatchParticipantEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(updatable = false)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "match_id", nullable = false, updatable = false)
+    private MatchEntity match;
+
+    // Null for guests
+    @Column(name = "member_id", updatable = false)
+    private Long memberId;
+
+    // Null for members
+    @Column(updatable = false)
+    private String guest;
+
+    @Column(nullable = false)
+    @Setter
+    private ParticipantStatus status;
+
+    @Column
+    @Setter
+    private Team team;
+
+    // Team this participant captains, if any
+    @Column
+    @Setter
+    private Team captain;
+}
@@ -0,0 +1,28 @@
+package com.torresj.footballteammanagementapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Read model of a match: the rendered MatchDto, rewritten in the transaction of every change
+@Entity
+@Table(name = "match_view")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@Getter
+public class MatchViewEntity {
+    @Id
+    @Column(name = "match_id")
+    private Long matchId;
+
+    @Column(name = "match_version", nullable = false)
+    private long matchVersion;
+
+    // ETag of exactly this json, so a response never pairs a new ETag with an older body
+    @Column
+    private String etag;
+
+    @Lob
+    @Column(nullable = false)
+    private String json;
+}
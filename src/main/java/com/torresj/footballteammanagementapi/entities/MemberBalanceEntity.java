@@ -0,0 +1,21 @@
+package com.torresj.footballteammanagementapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Running balance of a member, kept in step with every movement write so reads never sum the
+// movement history
+@Entity
+@Table(name = "member_balance", indexes = @Index(columnList = "balance"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@Getter
+public class MemberBalanceEntity {
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(nullable = false)
+    private double balance;
+}
@@ -1,6 +1,7 @@
 package com.torresj.footballteammanagementapi.entities;
 
 import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.utils.Usernames;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -8,6 +9,12 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(
+        indexes = {
+            @Index(columnList = "injured, blocked"),
+            @Index(columnList = "n_captaincies"),
+            @Index(columnList = "alias")
+        })
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder(toBuilder = true)
@@ -27,6 +34,10 @@ public class MemberEntity {
     @Column(nullable = false)
     private String surname;
 
+    // Login key, derived from name and surname on every insert and update
+    @Column(unique = true)
+    private String username;
+
     @Column(nullable = false)
     private String phone;
 
@@ -36,7 +47,7 @@ public class MemberEntity {
     @Column(nullable = false)
     private String password;
 
-    @Column
+    @Column(name = "n_captaincies")
     private int nCaptaincies;
 
     @Column
@@ -47,4 +58,19 @@ public class MemberEntity {
 
     @Column(nullable = false)
     private boolean blocked;
+
+    // Skill from 1 to 10 used to balance generated teams
+    @Column(columnDefinition = "integer default 5")
+    @Builder.Default
+    private int rating = 5;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeUsername() {
+        username = Usernames.of(name, surname);
+    }
 }
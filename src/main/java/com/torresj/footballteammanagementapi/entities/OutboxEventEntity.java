@@ -0,0 +1,68 @@
+package com.torresj.footballteammanagementapi.entities;
+
+import com.torresj.footballteammanagementapi.enums.OutboxEventType;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+// Side effect committed together with the state change that caused it and applied later by the
+// outbox worker
+@Entity
+@Table(name = "outbox_event", indexes = @Index(columnList = "processed_at, next_attempt_at, id"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@Getter
+public class OutboxEventEntity {
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int MAX_BACKOFF_SHIFT = 12;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(updatable = false)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private OutboxEventType type;
+
+    @Column(name = "aggregate_id", nullable = false, updatable = false)
+    private long aggregateId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "processed_at")
+    @Setter
+    private LocalDateTime processedAt;
+
+    @Column
+    private int attempts;
+
+    @Column(length = MAX_ERROR_LENGTH)
+    private String lastError;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private long version;
+
+    public static OutboxEventEntity of(OutboxEventType type, long aggregateId) {
+        var now = LocalDateTime.now();
+        return OutboxEventEntity.builder()
+                .type(type)
+                .aggregateId(aggregateId)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+
+    // Exponential backoff from the base delay, capped so a stuck event is still retried hourly
+    public void failed(String error, long backoffMillis) {
+        attempts++;
+        lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        var delay = Math.min(backoffMillis << Math.min(attempts - 1, MAX_BACKOFF_SHIFT), 3_600_000L);
+        nextAttemptAt = LocalDateTime.now().plusNanos(delay * 1_000_000);
+    }
+}
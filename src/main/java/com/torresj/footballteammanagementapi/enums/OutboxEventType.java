@@ -0,0 +1,5 @@
+package com.torresj.footballteammanagementapi.enums;
+
+public enum OutboxEventType {
+    MATCH_CLOSED
+}
@@ -0,0 +1,7 @@
+package com.torresj.footballteammanagementapi.enums;
+
+public enum ParticipantStatus {
+    CONFIRMED,
+    UNCONFIRMED,
+    NOT_AVAILABLE
+}
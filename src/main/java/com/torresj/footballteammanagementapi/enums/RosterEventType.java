@@ -0,0 +1,12 @@
+package com.torresj.footballteammanagementapi.enums;
+
+public enum RosterEventType {
+    PLAYER_CONFIRMED,
+    PLAYER_NOT_AVAILABLE,
+    TEAM_PLAYER_ADDED,
+    TEAM_PLAYER_REMOVED,
+    GUEST_ADDED,
+    GUEST_REMOVED,
+    CAPTAIN_SET,
+    LINEUP_SET
+}
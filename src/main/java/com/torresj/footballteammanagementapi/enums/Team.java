@@ -0,0 +1,6 @@
+package com.torresj.footballteammanagementapi.enums;
+
+public enum Team {
+    A,
+    B
+}
@@ -0,0 +1,3 @@
+package com.torresj.footballteammanagementapi.events;
+
+public record MatchChangedEvent(long matchId) {}
@@ -0,0 +1,3 @@
+package com.torresj.footballteammanagementapi.events;
+
+public record MemberChangedEvent(long memberId) {}
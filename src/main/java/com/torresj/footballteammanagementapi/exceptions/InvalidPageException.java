@@ -0,0 +1,7 @@
+package com.torresj.footballteammanagementapi.exceptions;
+
+public class InvalidPageException extends Exception {
+  public InvalidPageException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,7 @@
+package com.torresj.footballteammanagementapi.exceptions;
+
+public class MemberUsernameTakenException extends MemberAlreadyExistsException {
+  public MemberUsernameTakenException(String username) {
+    super(username);
+  }
+}
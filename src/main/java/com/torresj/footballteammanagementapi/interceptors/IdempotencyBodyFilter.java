@@ -0,0 +1,100 @@
+package com.torresj.footballteammanagementapi.interceptors;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Buffers the body of writes carrying an Idempotency-Key, so IdempotencyInterceptor can
+// fingerprint it before the controller reads it. Registered by WebConfig for the roster paths only
+public class IdempotencyBodyFilter extends OncePerRequestFilter {
+
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    var path = request.getRequestURI().substring(request.getContextPath().length());
+    return IdempotencyInterceptor.PATHS.stream()
+        .noneMatch(pattern -> pathMatcher.match(pattern, path));
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    var header = request.getHeader(IdempotencyInterceptor.KEY_HEADER);
+    if (header == null || header.isBlank() || "GET".equals(request.getMethod())) {
+      chain.doFilter(request, response);
+      return;
+    }
+    chain.doFilter(new CachedBodyRequest(request), response);
+  }
+
+  public static class CachedBodyRequest extends HttpServletRequestWrapper {
+    private final byte[] body;
+
+    private CachedBodyRequest(HttpServletRequest request) throws IOException {
+      super(request);
+      body = request.getInputStream().readAllBytes();
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      var input = new ByteArrayInputStream(body);
+      return new ServletInputStream() {
+        @Override
+        public int read() {
+          return input.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+          return input.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+          return input.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        // The body is already in memory, so it is all available at once
+        @Override
+        public void setReadListener(ReadListener listener) {
+          try {
+            listener.onDataAvailable();
+            listener.onAllDataRead();
+          } catch (IOException e) {
+            listener.onError(e);
+          }
+        }
+      };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+      var encoding = getCharacterEncoding();
+      var charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+      return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.torresj.footballteammanagementapi.interceptors;
+
+import com.torresj.footballteammanagementapi.services.IdempotencyService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+// Answers a write retried with the same Idempotency-Key with the stored status instead of running
+// it again. Only successful outcomes are remembered, so a failed request can still be retried. The
+// key is bound to a hash of the body, so reusing it for a different request is rejected with 422
+@RequiredArgsConstructor
+public class IdempotencyInterceptor implements HandlerInterceptor {
+
+  public static final String KEY_HEADER = "Idempotency-Key";
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  // Roster writes that accept an Idempotency-Key
+  public static final List<String> PATHS =
+      List.of(
+          "/v1/matches/*/players",
+          "/v1/matches/*/players/**",
+          "/v1/matches/*/lineup",
+          "/v1/matches/*/guests/**",
+          "/v1/matches/*/captain*");
+
+  private static final String KEY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".key";
+  private static final String FINGERPRINT_ATTRIBUTE =
+      IdempotencyInterceptor.class.getName() + ".fingerprint";
+
+  private final IdempotencyService idempotencyService;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws Exception {
+    var header = request.getHeader(KEY_HEADER);
+    if (header == null || header.isBlank() || "GET".equals(request.getMethod())) return true;
+
+    var user = request.getUserPrincipal() == null ? "" : request.getUserPrincipal().getName();
+    var key = user + " " + request.getMethod() + " " + request.getRequestURI() + " " + header;
+    var fingerprint = fingerprint(request);
+    var stored = idempotencyService.begin(key, fingerprint);
+    if (stored.isEmpty()) {
+      request.setAttribute(KEY_ATTRIBUTE, key);
+      request.setAttribute(FINGERPRINT_ATTRIBUTE, fingerprint);
+      return true;
+    }
+
+    if (stored.get() == IdempotencyService.MISMATCH) {
+      response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+    } else if (stored.get() == IdempotencyService.IN_PROGRESS) {
+      response.setStatus(HttpStatus.CONFLICT.value());
+    } else {
+      response.setStatus(stored.get());
+      response.setHeader(REPLAYED_HEADER, "true");
+    }
+    return false;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+      throws Exception {
+    if (!(request.getAttribute(KEY_ATTRIBUTE) instanceof String key)) return;
+
+    if (ex == null && response.getStatus() >= 200 && response.getStatus() < 300) {
+      idempotencyService.complete(
+          key, (String) request.getAttribute(FINGERPRINT_ATTRIBUTE), response.getStatus());
+    } else {
+      idempotencyService.abandon(key);
+    }
+  }
+
+  // Body buffered by IdempotencyBodyFilter; requests that bypass it hash as empty
+  private String fingerprint(HttpServletRequest request) throws NoSuchAlgorithmException {
+    var cached = WebUtils.getNativeRequest(request, IdempotencyBodyFilter.CachedBodyRequest.class);
+    var body = cached == null ? new byte[0] : cached.getBody();
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+  }
+}
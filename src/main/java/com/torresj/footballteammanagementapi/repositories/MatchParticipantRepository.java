@@ -0,0 +1,73 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.entities.MatchParticipantEntity;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.enums.Team;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MatchParticipantRepository extends JpaRepository<MatchParticipantEntity, Long> {
+
+    interface ParticipantCount {
+        Long getMatchId();
+
+        ParticipantStatus getStatus();
+
+        Team getTeam();
+
+        long getMembers();
+
+        long getGuests();
+    }
+
+    interface Captain {
+        Long getMatchId();
+
+        Long getMemberId();
+
+        Team getTeam();
+    }
+
+    @Query(
+            "select p.match.id as matchId, p.status as status, p.team as team,"
+                    + " count(p.memberId) as members, count(p.guest) as guests"
+                    + " from MatchParticipantEntity p where p.match.id in :matchIds"
+                    + " group by p.match.id, p.status, p.team")
+    List<ParticipantCount> countByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    @Query(
+            "select p.match.id as matchId, p.memberId as memberId, p.captain as team"
+                    + " from MatchParticipantEntity p"
+                    + " where p.match.id in :matchIds and p.captain is not null"
+                    + " and p.memberId is not null")
+    List<Captain> findCaptainsByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    // Ordered so a view renders the same json for the same rows
+    List<MatchParticipantEntity> findByMatchIdOrderById(long matchId);
+
+    Optional<MatchParticipantEntity> findByMatchIdAndMemberId(long matchId, long memberId);
+
+    @Query(
+            "select new com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto("
+                    + " p.memberId, p.team, m.nCaptaincies,"
+                    + " (select max(c.match.matchDay) from MatchParticipantEntity c"
+                    + " where c.memberId = p.memberId and c.captain is not null"
+                    + " and c.match.closed = true))"
+                    + " from MatchParticipantEntity p join MemberEntity m on m.id = p.memberId"
+                    + " where p.match.id = :matchId and p.team is not null")
+    List<CaptainCandidateDto> findCaptainCandidates(@Param("matchId") long matchId);
+
+    @Modifying
+    @Query(
+            "update MatchParticipantEntity p set p.captain = null"
+                    + " where p.match.id = :matchId and p.captain = :team")
+    void clearCaptain(@Param("matchId") long matchId, @Param("team") Team team);
+}
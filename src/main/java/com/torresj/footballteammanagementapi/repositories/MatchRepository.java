@@ -2,16 +2,89 @@ package com.torresj.footballteammanagementapi.repositories;
 
 import com.torresj.footballteammanagementapi.entities.MatchEntity;
 
+import jakarta.persistence.LockModeType;
 import java.time.LocalDate;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface MatchRepository extends JpaRepository<MatchEntity, Long> {
+
+    @Override
+    @EntityGraph(MatchEntity.WITH_PARTICIPANTS)
+    Optional<MatchEntity> findById(Long id);
+
+    @Override
+    @EntityGraph(MatchEntity.WITH_PARTICIPANTS)
+    List<MatchEntity> findAll(Sort sort);
+
+    @EntityGraph(MatchEntity.WITH_PARTICIPANTS)
     Optional<MatchEntity> findByMatchDayGreaterThanEqual(LocalDate date);
+
+    @EntityGraph(MatchEntity.WITH_PARTICIPANTS)
+    List<MatchEntity> findWithParticipantsByIdIn(Collection<Long> ids, Sort sort);
+
+    List<MatchEntity> findByIdIn(Collection<Long> ids, Sort sort);
+
+    @Query("select m.id from MatchEntity m where m.closed = true order by m.matchDay desc, m.id desc")
+    List<Long> findClosedIds(Pageable page);
+
+    @Query(
+            "select m.id from MatchEntity m where m.closed = true"
+                    + " and (m.matchDay < :matchDay or (m.matchDay = :matchDay and m.id < :id))"
+                    + " order by m.matchDay desc, m.id desc")
+    List<Long> findClosedIdsBefore(
+            @Param("matchDay") LocalDate matchDay, @Param("id") long id, Pageable page);
+
+    // Serializes read model rewrites that run outside the transaction of the change
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from MatchEntity m where m.id = :id")
+    Optional<MatchEntity> findForUpdateById(@Param("id") long id);
+
+    @Query("select m.closed from MatchEntity m where m.id = :id")
+    Optional<Boolean> findClosedById(@Param("id") long id);
+
+    @Query("select m.version from MatchEntity m where m.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    @Modifying
+    @Transactional
+    @Query("update MatchEntity m set m.version = m.version + 1 where m.id = :id")
+    void incrementVersion(@Param("id") long id);
+
+    @Query(
+            "select m.id from MatchEntity m"
+                    + " where m.closed = false and m.matchDay < :matchDay and m.id > :afterId"
+                    + " order by m.id")
+    List<Long> findOpenIdsBefore(
+            @Param("matchDay") LocalDate matchDay, @Param("afterId") long afterId, Pageable page);
+
     Optional<MatchEntity> findByMatchDay(LocalDate matchDay);
-    List<MatchEntity> findByClosedAndMatchDayBefore(boolean closed, LocalDate matchDay);
+
+    @Query(
+            "select m.id from MatchEntity m where m.matchDay >= :matchDay"
+                    + " order by m.matchDay, m.id")
+    List<Long> findIdsByMatchDayGreaterThanEqual(
+            @Param("matchDay") LocalDate matchDay, Pageable page);
+
+    @Query("select m.id from MatchEntity m where m.id > :afterId order by m.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable page);
+
+    // Open matches list every member as unconfirmed until they answer
+    @Query(
+            "select m.id from MatchEntity m where m.closed = false or exists"
+                    + " (select p.id from MatchParticipantEntity p"
+                    + " where p.match = m and p.memberId = :memberId)")
+    List<Long> findIdsShowingMember(@Param("memberId") long memberId);
 }
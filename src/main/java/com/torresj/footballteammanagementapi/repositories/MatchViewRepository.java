@@ -0,0 +1,18 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.MatchViewEntity;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MatchViewRepository extends JpaRepository<MatchViewEntity, Long> {
+
+    @Query("select v.etag from MatchViewEntity v where v.matchId = :matchId")
+    Optional<String> findEtagByMatchId(@Param("matchId") long matchId);
+
+    // Views rendered before the etag column existed
+    boolean existsByEtagIsNull();
+}
@@ -0,0 +1,51 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.MemberBalanceEntity;
+import java.util.Collection;
+import java.util.Set;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MemberBalanceRepository extends JpaRepository<MemberBalanceEntity, Long> {
+
+    // Native so the amount is bound as is; HQL arithmetic on a parameter renders a cast that H2
+    // rejects
+    @Modifying
+    @Transactional
+    @Query(
+            value =
+                    "update member_balance set balance = balance + :amount"
+                            + " where member_id in (:memberIds)",
+            nativeQuery = true)
+    int addToBalances(
+            @Param("memberIds") Collection<Long> memberIds, @Param("amount") double amount);
+
+    @Query("select b.memberId from MemberBalanceEntity b where b.memberId in :memberIds")
+    Set<Long> findExistingIds(@Param("memberIds") Collection<Long> memberIds);
+
+    // Commits on its own, so a duplicate key from a concurrent first movement only fails this
+    // insert and not the caller's transaction
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(
+            value = "insert into member_balance (member_id, balance) values (:memberId, 0)",
+            nativeQuery = true)
+    int open(@Param("memberId") long memberId);
+
+    // Recomputes the balance from the movement history in the same statement, so a movement
+    // committed while reconciling is not lost
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberBalanceEntity b set b.balance ="
+                    + " (select coalesce(sum(m.amount), 0.0) from MovementEntity m"
+                    + " where m.memberId = b.memberId)"
+                    + " where b.memberId = :memberId")
+    int recompute(@Param("memberId") long memberId);
+}
@@ -1,11 +1,156 @@
 package com.torresj.footballteammanagementapi.repositories;
 
+import com.torresj.footballteammanagementapi.dtos.TeamCandidateDto;
 import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.utils.Usernames;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface MemberRepository extends JpaRepository<MemberEntity, Long> {
+public interface MemberRepository
+        extends JpaRepository<MemberEntity, Long>, JpaSpecificationExecutor<MemberEntity> {
+
+    interface MemberVersion {
+        Long getId();
+
+        Long getVersion();
+    }
+
+    interface MemberName {
+        Long getId();
+
+        String getName();
+
+        String getSurname();
+    }
+
     Optional<MemberEntity> findByNameAndSurname(String name, String surname);
+
+    Optional<MemberEntity> findByUsername(String username);
+
+    boolean existsByUsername(String username);
+
+    // Resolves a "name.surname" login through the unique username index
+    default Optional<MemberEntity> findByLogin(String login) {
+        var username = Usernames.normalize(login);
+        return username == null ? Optional.empty() : findByUsername(username);
+    }
+
+    @Query("select m.id as id, m.version as version from MemberEntity m where m.id = :id")
+    Optional<MemberVersion> findVersionById(@Param("id") long id);
+
+    @Query(
+            "select m.id as id, m.version as version from MemberEntity m"
+                    + " where m.username = :username")
+    Optional<MemberVersion> findVersionByUsername(@Param("username") String username);
+
+    default Optional<MemberVersion> findVersionByLogin(String login) {
+        var username = Usernames.normalize(login);
+        return username == null ? Optional.empty() : findVersionByUsername(username);
+    }
+
+    // Members stored before the username column existed
+    List<MemberName> findByUsernameIsNull();
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.username = :username, m.version = m.version + 1"
+                    + " where m.id = :id and m.username is null")
+    int updateUsername(@Param("id") long id, @Param("username") String username);
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.nCaptaincies = m.nCaptaincies + 1,"
+                    + " m.version = m.version + 1 where m.id in :ids")
+    int incrementCaptaincies(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("update MemberEntity m set m.rating = :rating, m.version = m.version + 1 where m.id = :id")
+    int updateRating(@Param("id") long id, @Param("rating") int rating);
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.injured = :injured, m.version = m.version + 1"
+                    + " where m.id = :id")
+    int updateInjured(@Param("id") long id, @Param("injured") boolean injured);
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.blocked = :blocked, m.version = m.version + 1"
+                    + " where m.id = :id")
+    int updateBlocked(@Param("id") long id, @Param("blocked") boolean blocked);
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.alias = :alias, m.version = m.version + 1"
+                    + " where m.id = :id")
+    int updateAlias(@Param("id") long id, @Param("alias") String alias);
+
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.password = :password, m.version = m.version + 1"
+                    + " where m.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    // Bulk updates skip the entity callbacks, so the caller passes the derived username
+    @Modifying
+    @Transactional
+    @Query(
+            "update MemberEntity m set m.name = :name, m.alias = :alias, m.surname = :surname,"
+                    + " m.username = :username, m.phone = :phone, m.nCaptaincies = :nCaptaincies,"
+                    + " m.role = :role, m.version = m.version + 1 where m.id = :id")
+    int updateProfile(
+            @Param("id") long id,
+            @Param("name") String name,
+            @Param("alias") String alias,
+            @Param("surname") String surname,
+            @Param("username") String username,
+            @Param("phone") String phone,
+            @Param("nCaptaincies") int nCaptaincies,
+            @Param("role") Role role);
+
+    @Query("select m.id from MemberEntity m where m.id in :ids and m.injured = false")
+    List<Long> findNotInjuredIds(@Param("ids") Collection<Long> ids);
+
+    // Members that have not answered for the match yet: everyone but the admin without a
+    // participant row, resolved by the (match_id, member_id) index
+    @Query(
+            "select m.id from MemberEntity m where m.name <> :admin and not exists"
+                    + " (select p.id from MatchParticipantEntity p"
+                    + " where p.match.id = :matchId and p.memberId = m.id)")
+    Set<Long> findUnansweredIds(@Param("matchId") long matchId, @Param("admin") String admin);
+
+    @Query(
+            "select new com.torresj.footballteammanagementapi.dtos.TeamCandidateDto("
+                    + " m.id, m.rating, m.nCaptaincies,"
+                    + " (select count(p) from MatchParticipantEntity p"
+                    + " where p.memberId = m.id and p.status = :attended and p.match.closed = true))"
+                    + " from MemberEntity m where m.id in :ids order by m.id")
+    List<TeamCandidateDto> findTeamCandidates(
+            @Param("ids") Collection<Long> ids, @Param("attended") ParticipantStatus attended);
+
+    // Only moves the nonce forward, so a replayed or concurrent login with the same nonce
+    // updates nothing
+    @Modifying
+    @Transactional
+    @Query("update MemberEntity m set m.nonce = :nonce where m.id = :id and m.nonce < :nonce")
+    int updateNonce(@Param("id") long id, @Param("nonce") long nonce);
 }
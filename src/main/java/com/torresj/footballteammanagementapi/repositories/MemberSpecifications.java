@@ -0,0 +1,102 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.MemberBalanceEntity;
+import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.enums.MemberSort;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import java.util.Locale;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+// Filters and ordering of the member directory, evaluated by the database
+public final class MemberSpecifications {
+
+    private MemberSpecifications() {}
+
+    public static Specification<MemberEntity> notNamed(String name) {
+        return (root, query, builder) -> builder.notEqual(root.get("name"), name);
+    }
+
+    public static Specification<MemberEntity> injured(Boolean injured) {
+        return (root, query, builder) ->
+                injured == null ? null : builder.equal(root.get("injured"), injured);
+    }
+
+    public static Specification<MemberEntity> blocked(Boolean blocked) {
+        return (root, query, builder) ->
+                blocked == null ? null : builder.equal(root.get("blocked"), blocked);
+    }
+
+    // Uncorrelated range over the member_balance(balance) index; members without movements have
+    // no row and a zero balance, so they only match positive amounts
+    public static Specification<MemberEntity> balanceBelow(Double amount) {
+        return (root, query, builder) -> {
+            if (amount == null) return null;
+            var below = query.subquery(Long.class);
+            var balance = below.from(MemberBalanceEntity.class);
+            below.select(balance.<Long>get("memberId"))
+                    .where(builder.lessThan(balance.get("balance"), amount));
+            if (amount <= 0) return root.get("id").in(below);
+
+            var opened = query.subquery(Long.class);
+            opened.select(opened.from(MemberBalanceEntity.class).<Long>get("memberId"));
+            return builder.or(root.get("id").in(below), builder.not(root.get("id").in(opened)));
+        };
+    }
+
+    // Name prefixes are matched against the unique username index ("name.surname" lower-cased).
+    // Aliases are matched on the column itself so its index is used; the MariaDB collation
+    // already compares case-insensitively
+    public static Specification<MemberEntity> nameOrAliasStartsWith(String prefix) {
+        return (root, query, builder) -> {
+            if (prefix == null || prefix.isBlank()) return null;
+            var escaped = escape(prefix.trim());
+            return builder.or(
+                    builder.like(
+                            root.<String>get("username"),
+                            escaped.toLowerCase(Locale.ROOT) + "%",
+                            '\\'),
+                    builder.like(root.<String>get("alias"), escaped + "%", '\\'));
+        };
+    }
+
+    // Count queries share the specification, so ordering is only added to the select
+    public static Specification<MemberEntity> orderBy(MemberSort sort, Sort.Direction direction) {
+        return (root, query, builder) -> {
+            if (Long.class == query.getResultType()) return null;
+            if (sort == null) {
+                query.orderBy(builder.asc(root.get("id")));
+                return null;
+            }
+            Expression<?> key =
+                    switch (sort) {
+                        case NAME -> root.get("username");
+                        case BALANCE -> balance(root, query, builder);
+                        case CAPTAINCIES -> root.get("nCaptaincies");
+                    };
+            query.orderBy(
+                    direction == Sort.Direction.DESC ? builder.desc(key) : builder.asc(key),
+                    builder.asc(root.get("id")));
+            return null;
+        };
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Running balance from member_balance, looked up by primary key; members without
+    // movements have no row and count as zero
+    private static Expression<Double> balance(
+            Root<MemberEntity> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+        var subquery = query.subquery(Double.class);
+        var balance = subquery.from(MemberBalanceEntity.class);
+        subquery
+                .select(balance.<Double>get("balance"))
+                .where(builder.equal(balance.get("memberId"), root.get("id")));
+        return builder.coalesce(subquery, 0.0);
+    }
+}
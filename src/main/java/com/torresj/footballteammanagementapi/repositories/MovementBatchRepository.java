@@ -0,0 +1,8 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.MovementEntity;
+import java.util.Collection;
+
+public interface MovementBatchRepository {
+    void insertAll(Collection<MovementEntity> movements);
+}
@@ -0,0 +1,43 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.MovementEntity;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Movements use IDENTITY ids, which stops Hibernate from batching inserts, so bulk fines go
+// straight through JDBC
+@RequiredArgsConstructor
+public class MovementBatchRepositoryImpl implements MovementBatchRepository {
+
+    private static final String INSERT =
+            "insert into movement_entity (type, member_id, amount, description, created_on)"
+                    + " values (?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(Collection<MovementEntity> movements) {
+        if (movements.isEmpty()) return;
+        jdbcTemplate.batchUpdate(
+                INSERT,
+                movements,
+                BATCH_SIZE,
+                (statement, movement) -> {
+                    statement.setInt(1, movement.getType().ordinal());
+                    statement.setLong(2, movement.getMemberId());
+                    statement.setDouble(3, movement.getAmount());
+                    statement.setString(4, movement.getDescription());
+                    statement.setDate(
+                            5,
+                            Date.valueOf(
+                                    movement.getCreatedOn() == null
+                                            ? LocalDate.now()
+                                            : movement.getCreatedOn()));
+                });
+    }
+}
@@ -5,12 +5,26 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface MovementRepository extends JpaRepository<MovementEntity, Long> {
+public interface MovementRepository
+        extends JpaRepository<MovementEntity, Long>, MovementBatchRepository {
+
+    interface MemberBalance {
+        Long getMemberId();
+
+        Double getBalance();
+    }
+
+    @Query(
+            "select m.memberId as memberId, sum(m.amount) as balance from MovementEntity m"
+                    + " group by m.memberId")
+    List<MemberBalance> findBalances();
+
     List<MovementEntity> findByMemberId(long memberId, Sort sort);
 
     Page<MovementEntity> findByMemberId(long memberId, Pageable page);
@@ -0,0 +1,24 @@
+package com.torresj.footballteammanagementapi.repositories;
+
+import com.torresj.footballteammanagementapi.entities.OutboxEventEntity;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    @Query(
+            "select e.id from OutboxEventEntity e"
+                    + " where e.processedAt is null and e.nextAttemptAt <= :now"
+                    + " and e.attempts < :maxAttempts and e.id > :afterId order by e.id")
+    List<Long> findPendingIds(
+            @Param("now") LocalDateTime now,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("afterId") long afterId,
+            Pageable page);
+}
@@ -0,0 +1,23 @@
+package com.torresj.footballteammanagementapi.scheduledTasks;
+
+import com.torresj.footballteammanagementapi.services.MovementService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceTasks {
+
+    private final MovementService movementService;
+
+    @Scheduled(cron = "${balances.reconcile-cron:0 30 3 * * ?}")
+    public void reconcileBalances() {
+        log.info("Reconciling member balances with their movements");
+        var drifted = movementService.reconcileBalances();
+        if (drifted > 0) log.warn("Corrected " + drifted + " drifted member balances");
+        else log.info("Member balances match their movements");
+    }
+}
@@ -18,6 +18,19 @@ public class MatchTasks {
     @Scheduled(cron = "0 0 3 * * ?")
     public void closeMatch(){
         log.info("Closing all matches before today");
-        matchService.closePastMatches();
+        var report = matchService.closePastMatches();
+        log.info(
+                "Closed "
+                        + report.matchesClosed()
+                        + " matches with "
+                        + report.finesCreated()
+                        + " fines queued in "
+                        + report.elapsedMillis()
+                        + " ms");
+        if (!report.failures().isEmpty()) {
+            log.error("Matches not closed: " + report.failures());
+        }
+        log.info("Rebuilding next match snapshot");
+        matchService.refreshNext();
     }
 }
@@ -0,0 +1,21 @@
+package com.torresj.footballteammanagementapi.scheduledTasks;
+
+import com.torresj.footballteammanagementapi.services.OutboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxTasks {
+
+    private final OutboxService outboxService;
+
+    @Scheduled(fixedDelayString = "${outbox.delay:5000}", initialDelayString = "${outbox.delay:5000}")
+    public void processOutbox() {
+        var processed = outboxService.processPending();
+        if (processed > 0) log.info("Applied " + processed + " outbox events");
+    }
+}
@@ -0,0 +1,32 @@
+package com.torresj.footballteammanagementapi.services;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+
+public interface CaptainPolicy {
+  String getName();
+
+  Optional<CaptainCandidateDto> pick(List<CaptainCandidateDto> candidates, RandomGenerator random);
+
+  // Smallest candidate by the given order, ties broken uniformly at random in a single pass
+  static Optional<CaptainCandidateDto> pickFirst(
+      List<CaptainCandidateDto> candidates,
+      Comparator<CaptainCandidateDto> order,
+      RandomGenerator random) {
+    CaptainCandidateDto chosen = null;
+    int ties = 0;
+    for (var candidate : candidates) {
+      int comparison = chosen == null ? -1 : order.compare(candidate, chosen);
+      if (comparison < 0) {
+        chosen = candidate;
+        ties = 1;
+      } else if (comparison == 0 && random.nextInt(++ties) == 0) {
+        chosen = candidate;
+      }
+    }
+    return Optional.ofNullable(chosen);
+  }
+}
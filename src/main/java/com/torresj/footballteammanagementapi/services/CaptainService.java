@@ -0,0 +1,9 @@
+package com.torresj.footballteammanagementapi.services;
+
+import com.torresj.footballteammanagementapi.enums.Team;
+import java.util.Collection;
+import java.util.Map;
+
+public interface CaptainService {
+  Map<Team, Long> pickCaptains(long matchId, Collection<Team> teams);
+}
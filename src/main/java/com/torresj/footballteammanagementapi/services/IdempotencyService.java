@@ -0,0 +1,17 @@
+package com.torresj.footballteammanagementapi.services;
+
+import java.util.Optional;
+
+public interface IdempotencyService {
+  int IN_PROGRESS = 0;
+  int MISMATCH = -1;
+
+  // Empty when the key was not seen recently and is now reserved for the caller; otherwise the
+  // stored response status, IN_PROGRESS while the first request is still running, or MISMATCH
+  // when the key was used with a different request body
+  Optional<Integer> begin(String key, String fingerprint);
+
+  void complete(String key, String fingerprint, int status);
+
+  void abandon(String key);
+}
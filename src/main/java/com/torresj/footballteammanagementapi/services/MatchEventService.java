@@ -0,0 +1,10 @@
+package com.torresj.footballteammanagementapi.services;
+
+import com.torresj.footballteammanagementapi.dtos.RosterEventDto;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface MatchEventService {
+  SseEmitter subscribe();
+
+  void publish(RosterEventDto event);
+}
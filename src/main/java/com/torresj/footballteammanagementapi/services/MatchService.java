@@ -1,6 +1,9 @@
 package com.torresj.footballteammanagementapi.services;
 
+import com.torresj.footballteammanagementapi.dtos.CloseMatchesReportDto;
+import com.torresj.footballteammanagementapi.dtos.LineupRequestDto;
 import com.torresj.footballteammanagementapi.dtos.MatchDto;
+import com.torresj.footballteammanagementapi.dtos.MatchSummaryDto;
 import com.torresj.footballteammanagementapi.enums.PlayerMatchStatus;
 import com.torresj.footballteammanagementapi.exceptions.*;
 
@@ -12,12 +15,23 @@ public interface MatchService {
 
   MatchDto getNext() throws NextMatchException;
 
-  List<MatchDto> get();
+  String getETag(long id) throws MatchNotFoundException;
+
+  String getNextETag() throws NextMatchException;
+
+  List<MatchDto> get(LocalDate afterMatchDay, Long afterId, Integer elements)
+      throws InvalidPageException;
+
+  List<MatchSummaryDto> getSummaries(LocalDate afterMatchDay, Long afterId, Integer elements)
+      throws InvalidPageException;
 
   MatchDto create(LocalDate matchDay) throws MatchAlreadyExistsException;
 
   void close(long id) throws MatchNotFoundException;
 
+  // Applies the fines and captain counters of a closed match; called once by the outbox worker
+  int applyClose(long id);
+
   void addPlayer(long matchId, PlayerMatchStatus status, String playerName)
       throws MemberNotFoundException, MatchNotFoundException, MemberBlockedException;
 
@@ -43,7 +57,17 @@ public interface MatchService {
 
   void setRandomCaptainTeamB(long matchId) throws MatchNotFoundException;
 
+  void setRandomCaptains(long matchId) throws MatchNotFoundException;
+
+  void setLineup(long matchId, LineupRequestDto lineup)
+      throws MatchNotFoundException, PlayerUnavailableException;
+
   void delete(long id);
 
-  void closePastMatches();
+  CloseMatchesReportDto closePastMatches();
+
+  void refreshNext();
+
+  // Re-renders the read model of every match and returns how many were rendered
+  int rebuildViews();
 }
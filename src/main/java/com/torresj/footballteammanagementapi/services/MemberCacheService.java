@@ -0,0 +1,15 @@
+package com.torresj.footballteammanagementapi.services;
+
+import com.torresj.footballteammanagementapi.dtos.MatchPlayerDto;
+import java.util.Collection;
+import java.util.Map;
+
+public interface MemberCacheService {
+  MatchPlayerDto get(long memberId);
+
+  Map<Long, MatchPlayerDto> get(Collection<Long> memberIds);
+
+  void evict(long memberId);
+
+  long getGeneration();
+}
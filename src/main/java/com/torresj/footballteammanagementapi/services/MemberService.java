@@ -1,11 +1,15 @@
 package com.torresj.footballteammanagementapi.services;
 
 import com.torresj.footballteammanagementapi.dtos.MemberDto;
+import com.torresj.footballteammanagementapi.enums.MemberSort;
 import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.exceptions.InvalidPageException;
 import com.torresj.footballteammanagementapi.exceptions.MemberAlreadyExistsException;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
-
+import com.torresj.footballteammanagementapi.exceptions.MemberUsernameTakenException;
 import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 
 public interface MemberService {
     MemberDto get(long id) throws MemberNotFoundException;
@@ -13,9 +17,23 @@ public interface MemberService {
 
     void setBlocked(long id, boolean blocked) throws MemberNotFoundException;
 
+    void setRating(long id, int rating) throws MemberNotFoundException;
+
     MemberDto get(String username) throws MemberNotFoundException;
+    String getETag(long id) throws MemberNotFoundException;
+    String getETag(String username) throws MemberNotFoundException;
     List<MemberDto> get();
-    MemberDto update(long id, String name, String alias, String surname, String phone, int nCaptaincies, Role role) throws MemberNotFoundException;
+    Page<MemberDto> get(
+            Boolean injured,
+            Boolean blocked,
+            Double balanceBelow,
+            String search,
+            MemberSort sort,
+            Sort.Direction direction,
+            Integer nElements,
+            Integer nPage)
+            throws InvalidPageException;
+    MemberDto update(long id, String name, String alias, String surname, String phone, int nCaptaincies, Role role) throws MemberNotFoundException, MemberUsernameTakenException;
     MemberDto create(String name, String alias, String surname, String phone, String password, Role role) throws MemberAlreadyExistsException;
     void updateMyPassword(String user, String newPassword) throws MemberNotFoundException;
     void updateMyAlias(String user, String alias) throws MemberNotFoundException;
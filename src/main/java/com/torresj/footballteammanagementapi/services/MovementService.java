@@ -7,7 +7,9 @@ import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
 import com.torresj.footballteammanagementapi.exceptions.MovementNotFoundException;
 import org.springframework.data.domain.Page;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface MovementService {
   Page<MovementDto> get(Long memberId, String filter, int nElements, int nPage);
@@ -18,6 +20,16 @@ public interface MovementService {
 
   double getBalance(long memberId);
 
+  Map<Long, Double> getBalances();
+
+  Map<Long, Double> getBalances(Collection<Long> memberIds);
+
+  // Moves the running balance of each member by amount, inside the caller's transaction
+  void addToBalances(Collection<Long> memberIds, double amount);
+
+  // Recomputes every running balance from the movement history; returns the members corrected
+  int reconcileBalances();
+
   MovementDto create(long memberId, MovementType type, double amount, String description)
       throws MemberNotFoundException;
 
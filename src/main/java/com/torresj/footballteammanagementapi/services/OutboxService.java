@@ -0,0 +1,6 @@
+package com.torresj.footballteammanagementapi.services;
+
+public interface OutboxService {
+  // Applies every due outbox event and returns how many were applied
+  int processPending();
+}
@@ -0,0 +1,10 @@
+package com.torresj.footballteammanagementapi.services;
+
+import com.torresj.footballteammanagementapi.dtos.GeneratedTeamsDto;
+import com.torresj.footballteammanagementapi.exceptions.MatchNotFoundException;
+import com.torresj.footballteammanagementapi.exceptions.PlayerUnavailableException;
+
+public interface TeamGeneratorService {
+  GeneratedTeamsDto generate(long matchId, Long seed, boolean apply)
+      throws MatchNotFoundException, PlayerUnavailableException;
+}
@@ -0,0 +1,53 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.enums.Team;
+import com.torresj.footballteammanagementapi.repositories.MatchParticipantRepository;
+import com.torresj.footballteammanagementapi.services.CaptainPolicy;
+import com.torresj.footballteammanagementapi.services.CaptainService;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+public class CaptainServiceImpl implements CaptainService {
+
+  private final MatchParticipantRepository matchParticipantRepository;
+  private final CaptainPolicy policy;
+
+  public CaptainServiceImpl(
+      MatchParticipantRepository matchParticipantRepository,
+      List<CaptainPolicy> policies,
+      @Value("${matches.captains.policy:least-captaincies}") String policyName) {
+    this.matchParticipantRepository = matchParticipantRepository;
+    this.policy =
+        policies.stream()
+            .filter(candidate -> candidate.getName().equals(policyName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Unknown captain policy " + policyName));
+    log.info("[CAPTAINS] Using " + policyName + " policy");
+  }
+
+  @Override
+  public Map<Team, Long> pickCaptains(long matchId, Collection<Team> teams) {
+    var candidates =
+        matchParticipantRepository.findCaptainCandidates(matchId).stream()
+            .collect(Collectors.groupingBy(CaptainCandidateDto::team));
+
+    var captains = new EnumMap<Team, Long>(Team.class);
+    for (var team : teams) {
+      var eligible =
+          candidates.getOrDefault(team, List.of()).stream()
+              .filter(candidate -> !captains.containsValue(candidate.memberId()))
+              .toList();
+      policy
+          .pick(eligible, ThreadLocalRandom.current())
+          .ifPresent(candidate -> captains.put(team, candidate.memberId()));
+    }
+    return captains;
+  }
+}
@@ -0,0 +1,52 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.services.IdempotencyService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Bounded LRU of recent Idempotency-Key outcomes; entries expire after the configured ttl
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+  @Value("${idempotency.max-size:1024}")
+  private final int maxSize;
+
+  @Value("${idempotency.ttl:600000}")
+  private final long ttl;
+
+  private record Entry(int status, String fingerprint, long expiresAt) {}
+
+  private final Map<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+          return size() > maxSize || eldest.getValue().expiresAt() <= System.currentTimeMillis();
+        }
+      };
+
+  @Override
+  public synchronized Optional<Integer> begin(String key, String fingerprint) {
+    var now = System.currentTimeMillis();
+    var entry = entries.get(key);
+    if (entry != null && entry.expiresAt() > now) {
+      return Optional.of(entry.fingerprint().equals(fingerprint) ? entry.status() : MISMATCH);
+    }
+    entries.put(key, new Entry(IN_PROGRESS, fingerprint, now + ttl));
+    return Optional.empty();
+  }
+
+  @Override
+  public synchronized void complete(String key, String fingerprint, int status) {
+    entries.put(key, new Entry(status, fingerprint, System.currentTimeMillis() + ttl));
+  }
+
+  @Override
+  public synchronized void abandon(String key) {
+    entries.remove(key);
+  }
+}
@@ -0,0 +1,27 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.services.CaptainPolicy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LeastCaptainciesCaptainPolicy implements CaptainPolicy {
+
+  private static final Comparator<CaptainCandidateDto> ORDER =
+      Comparator.comparingInt(CaptainCandidateDto::captaincies);
+
+  @Override
+  public String getName() {
+    return "least-captaincies";
+  }
+
+  @Override
+  public Optional<CaptainCandidateDto> pick(
+      List<CaptainCandidateDto> candidates, RandomGenerator random) {
+    return CaptainPolicy.pickFirst(candidates, ORDER, random);
+  }
+}
@@ -0,0 +1,30 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.services.CaptainPolicy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+import org.springframework.stereotype.Component;
+
+// Players who never captained go first, then whoever captained longest ago
+@Component
+public class LeastRecentCaptainPolicy implements CaptainPolicy {
+
+  private static final Comparator<CaptainCandidateDto> ORDER =
+      Comparator.comparing(
+              CaptainCandidateDto::lastCaptainDay, Comparator.nullsFirst(Comparator.naturalOrder()))
+          .thenComparingInt(CaptainCandidateDto::captaincies);
+
+  @Override
+  public String getName() {
+    return "least-recent";
+  }
+
+  @Override
+  public Optional<CaptainCandidateDto> pick(
+      List<CaptainCandidateDto> candidates, RandomGenerator random) {
+    return CaptainPolicy.pickFirst(candidates, ORDER, random);
+  }
+}
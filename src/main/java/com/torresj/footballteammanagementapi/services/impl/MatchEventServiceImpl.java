@@ -0,0 +1,125 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.RosterEventDto;
+import com.torresj.footballteammanagementapi.services.MatchEventService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MatchEventServiceImpl implements MatchEventService {
+
+  // Emitters are parked async requests, so idle subscribers hold no threads. Each subscriber
+  // drains its own queue on one of a fixed number of sender threads only while it has events, so
+  // a slow client holds at most one sender and is dropped once its backlog is full
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private ExecutorService sender;
+
+  @Value("${matches.events.timeout:1800000}")
+  private final long timeout;
+
+  @Value("${matches.events.backlog:64}")
+  private final int backlog;
+
+  @Value("${matches.events.senders:4}")
+  private final int senders;
+
+  @PostConstruct
+  public void start() {
+    sender = Executors.newFixedThreadPool(senders);
+  }
+
+  @Override
+  public SseEmitter subscribe() {
+    var subscriber = new Subscriber(new SseEmitter(timeout), new ArrayBlockingQueue<>(backlog));
+    subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    log.debug("[MATCH EVENTS] " + subscribers.size() + " subscribers");
+    return subscriber.emitter;
+  }
+
+  @Override
+  @TransactionalEventListener(fallbackExecution = true)
+  public void publish(RosterEventDto event) {
+    subscribers.forEach(
+        subscriber -> subscriber.offer(() -> SseEmitter.event().name("roster").data(event)));
+  }
+
+  @Scheduled(fixedRateString = "${matches.events.heartbeat:25000}")
+  public void heartbeat() {
+    subscribers.forEach(
+        subscriber -> subscriber.offer(() -> SseEmitter.event().comment("heartbeat")));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    sender.shutdownNow();
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+  }
+
+  // Events are queued as builders because an SseEventBuilder is consumed by the emitter that
+  // sends it, so every subscriber needs its own instance
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    private final Queue<Supplier<SseEventBuilder>> pending;
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private Subscriber(SseEmitter emitter, Queue<Supplier<SseEventBuilder>> pending) {
+      this.emitter = emitter;
+      this.pending = pending;
+    }
+
+    private void offer(Supplier<SseEventBuilder> event) {
+      if (!pending.offer(event)) {
+        drop(new IllegalStateException("Subscriber backlog full"));
+        return;
+      }
+      schedule();
+    }
+
+    private void schedule() {
+      if (!pending.isEmpty() && draining.compareAndSet(false, true)) sender.execute(this::drain);
+    }
+
+    private void drain() {
+      try {
+        Supplier<SseEventBuilder> event;
+        while ((event = pending.poll()) != null) emitter.send(event.get());
+      } catch (IOException | IllegalStateException e) {
+        drop(e);
+        return;
+      } finally {
+        draining.set(false);
+      }
+      // An event offered after the last poll but before the flag was cleared
+      schedule();
+    }
+
+    private void drop(Exception e) {
+      if (!subscribers.remove(this)) return;
+      log.debug("[MATCH EVENTS] Subscriber dropped: " + e.getMessage());
+      pending.clear();
+      emitter.completeWithError(e);
+    }
+  }
+}
@@ -1,444 +1,896 @@
 package com.torresj.footballteammanagementapi.services.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.torresj.footballteammanagementapi.dtos.CloseMatchesReportDto;
+import com.torresj.footballteammanagementapi.dtos.LineupRequestDto;
 import com.torresj.footballteammanagementapi.dtos.MatchDto;
 import com.torresj.footballteammanagementapi.dtos.MatchPlayerDto;
+import com.torresj.footballteammanagementapi.dtos.MatchSummaryDto;
+import com.torresj.footballteammanagementapi.dtos.RosterEventDto;
 import com.torresj.footballteammanagementapi.entities.MatchEntity;
-import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.entities.MatchParticipantEntity;
+import com.torresj.footballteammanagementapi.entities.MatchViewEntity;
 import com.torresj.footballteammanagementapi.entities.MovementEntity;
+import com.torresj.footballteammanagementapi.entities.OutboxEventEntity;
 import com.torresj.footballteammanagementapi.enums.MovementType;
+import com.torresj.footballteammanagementapi.enums.OutboxEventType;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
 import com.torresj.footballteammanagementapi.enums.PlayerMatchStatus;
+import com.torresj.footballteammanagementapi.enums.RosterEventType;
+import com.torresj.footballteammanagementapi.enums.Team;
+import com.torresj.footballteammanagementapi.events.MatchChangedEvent;
+import com.torresj.footballteammanagementapi.events.MemberChangedEvent;
 import com.torresj.footballteammanagementapi.exceptions.*;
+import com.torresj.footballteammanagementapi.repositories.MatchParticipantRepository;
+import com.torresj.footballteammanagementapi.repositories.MatchParticipantRepository.Captain;
+import com.torresj.footballteammanagementapi.repositories.MatchParticipantRepository.ParticipantCount;
 import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.MatchViewRepository;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
 import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.repositories.OutboxEventRepository;
+import com.torresj.footballteammanagementapi.services.CaptainService;
 import com.torresj.footballteammanagementapi.services.MatchService;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
+import com.torresj.footballteammanagementapi.services.MovementService;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MatchServiceImpl implements MatchService {
 
   private final MemberRepository memberRepository;
   private final MatchRepository matchRepository;
+  private final MatchParticipantRepository matchParticipantRepository;
+  private final MatchViewRepository matchViewRepository;
   private final MovementRepository movementRepository;
+  private final OutboxEventRepository outboxEventRepository;
+  private final MemberCacheService memberCacheService;
+  private final MovementService movementService;
+  private final CaptainService captainService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
 
   private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+  private static final Sort HISTORY_ORDER = Sort.by(Sort.Direction.DESC, "matchDay", "id");
+
+  // Prebuilt view of the upcoming match. Writes replace it; it is rebuilt on read only after
+  // midnight or when a member display name changed
+  private final AtomicReference<NextMatch> nextMatch = new AtomicReference<>();
+
+  private record NextMatch(
+      long id, long version, MatchDto match, String eTag, long generation, long expiresAt) {}
+
+  private static final long CLOSE_RETRY_BACKOFF_MILLIS = 500;
+
+  private static final int VIEW_REBUILD_CHUNK_SIZE = 100;
+
   @Value("${admin.user}")
   private final String adminUser;
 
+  @Value("${matches.close.chunk-size:50}")
+  private final int closeChunkSize;
+
+  @Value("${matches.close.parallelism:4}")
+  private final int closeParallelism;
+
+  @Value("${matches.close.max-attempts:3}")
+  private final int closeMaxAttempts;
+
+  @Value("${matches.page.default-elements:20}")
+  private final int defaultPageElements;
+
+  @Value("${matches.page.max-elements:100}")
+  private final int maxPageElements;
+
   @Override
   public MatchDto get(long id) throws MatchNotFoundException {
-    var match = matchRepository.findById(id).orElseThrow(() -> new MatchNotFoundException(id));
-    return matchToDto(match);
+    var view = matchViewRepository.findById(id);
+    if (view.isEmpty() && !matchRepository.existsById(id)) throw new MatchNotFoundException(id);
+    return fromView(view.orElseGet(() -> transactionTemplate.execute(status -> render(id))));
   }
 
   @Override
   public MatchDto getNext() throws NextMatchException {
-    var match =
-        matchRepository
-            .findByMatchDayGreaterThanEqual(LocalDate.now())
-            .orElseThrow(NextMatchException::new);
-    return matchToDto(match);
+    var next = getNextSnapshot();
+    if (next.match() == null) throw new NextMatchException();
+    return next.match();
   }
 
   @Override
-  public List<MatchDto> get() {
-    return matchRepository.findAll(Sort.by(Sort.Direction.DESC, "matchDay")).stream()
-        .map(this::matchToDto)
-        .filter(MatchDto::closed)
+  public String getETag(long id) throws MatchNotFoundException {
+    var etag = matchViewRepository.findEtagByMatchId(id);
+    if (etag.isPresent()) return etag.get();
+    if (!matchRepository.existsById(id)) throw new MatchNotFoundException(id);
+    return transactionTemplate.execute(status -> render(id)).getEtag();
+  }
+
+  @Override
+  public String getNextETag() throws NextMatchException {
+    var next = getNextSnapshot();
+    if (next.match() == null) throw new NextMatchException();
+    return next.eTag();
+  }
+
+  @Override
+  public List<MatchDto> get(LocalDate afterMatchDay, Long afterId, Integer elements)
+      throws InvalidPageException {
+    var ids = getClosedIds(afterMatchDay, afterId, pageSize(elements));
+    if (ids.isEmpty()) return List.of();
+
+    var matches = matchRepository.findWithParticipantsByIdIn(ids, HISTORY_ORDER);
+    var players = getPlayers(matches);
+    return matches.stream().map(match -> matchToDto(match, players)).toList();
+  }
+
+  @Override
+  public List<MatchSummaryDto> getSummaries(
+      LocalDate afterMatchDay, Long afterId, Integer elements) throws InvalidPageException {
+    var ids = getClosedIds(afterMatchDay, afterId, pageSize(elements));
+    if (ids.isEmpty()) return List.of();
+
+    var counts =
+        matchParticipantRepository.countByMatchIds(ids).stream()
+            .collect(Collectors.groupingBy(ParticipantCount::getMatchId));
+    var captains =
+        matchParticipantRepository.findCaptainsByMatchIds(ids).stream()
+            .collect(Collectors.groupingBy(Captain::getMatchId));
+    var players =
+        memberCacheService.get(
+            captains.values().stream()
+                .flatMap(List::stream)
+                .map(Captain::getMemberId)
+                .collect(Collectors.toSet()));
+
+    return matchRepository.findByIdIn(ids, HISTORY_ORDER).stream()
+        .map(
+            match ->
+                summaryToDto(
+                    match,
+                    counts.getOrDefault(match.getId(), List.of()),
+                    captains.getOrDefault(match.getId(), List.of()),
+                    players))
         .toList();
   }
 
+  // The match and its view are written together; the next match snapshot is replaced once the
+  // transaction commits
   @Override
+  @Transactional
   public MatchDto create(LocalDate matchDay) throws MatchAlreadyExistsException {
     var match = matchRepository.findByMatchDayGreaterThanEqual(LocalDate.now());
     if (match.isPresent()) throw new MatchAlreadyExistsException(matchDay.toString());
-    return matchToDto(
-        matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(matchDay)
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build()));
+    var newMatch =
+        matchRepository.save(MatchEntity.builder().matchDay(matchDay).closed(false).build());
+    var dto = fromView(render(newMatch.getId()));
+    eventPublisher.publishEvent(new MatchChangedEvent(newMatch.getId()));
+    return dto;
   }
 
   @Override
+  @Transactional
   public void close(long id) throws MatchNotFoundException {
     var match = matchRepository.findById(id).orElseThrow(() -> new MatchNotFoundException(id));
-    match.setClosed(true);
-    matchRepository.save(match);
-    Stream.concat(match.getNotAvailablePlayers().stream(), match.getUnConfirmedPlayers().stream())
-        .map(memberRepository::findById)
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .filter(member -> !member.isInjured())
-        .map(
-            member ->
-                MovementEntity.builder()
-                    .type(MovementType.EXPENSE)
-                    .amount(-1)
-                    .description(
-                        "Multa por no ir al partido del "
-                            + DateTimeFormatter.ofPattern("dd/MM/yy").format(match.getMatchDay()))
-                    .memberId(member.getId())
-                    .build())
-        .forEach(movementRepository::save);
-
-    if (match.getCaptainTeamA() != null) {
-      var captainA = memberRepository.findById(match.getCaptainTeamA());
-      captainA.ifPresent(
-          member ->
-              memberRepository.save(
-                  MemberEntity.builder()
-                      .id(member.getId())
-                      .nonce(member.getNonce())
-                      .phone(member.getPhone())
-                      .name(member.getName())
-                      .surname(member.getSurname())
-                      .injured(member.isInjured())
-                      .password(member.getPassword())
-                      .role(member.getRole())
-                      .nCaptaincies(member.getNCaptaincies() + 1)
-                      .build()));
-    }
+    if (!match.isClosed()) closeMatch(match);
+  }
 
-    if (match.getCaptainTeamB() != null) {
-      var captainB = memberRepository.findById(match.getCaptainTeamB());
-      captainB.ifPresent(
-          member ->
-              memberRepository.save(
-                  MemberEntity.builder()
-                      .id(member.getId())
-                      .nonce(member.getNonce())
-                      .phone(member.getPhone())
-                      .name(member.getName())
-                      .surname(member.getSurname())
-                      .injured(member.isInjured())
-                      .password(member.getPassword())
-                      .role(member.getRole())
-                      .nCaptaincies(member.getNCaptaincies() + 1)
-                      .build()));
-    }
+  @Override
+  @Transactional
+  public int applyClose(long id) {
+    var match = matchRepository.findById(id).filter(MatchEntity::isClosed);
+    if (match.isEmpty()) return 0;
+
+    var description =
+        "Multa por no ir al partido del "
+            + DateTimeFormatter.ofPattern("dd/MM/yy").format(match.get().getMatchDay());
+    var fines =
+        match
+            .get()
+            .getFinedRoster()
+            .stream()
+            .mapToObj(
+                memberId ->
+                    MovementEntity.builder()
+                        .type(MovementType.EXPENSE)
+                        .amount(-1)
+                        .description(description)
+                        .memberId(memberId)
+                        .createdOn(LocalDate.now())
+                        .build())
+            .toList();
+    movementRepository.insertAll(fines);
+    movementService.addToBalances(match.get().getFinedRoster().toSet(), -1);
+
+    var captains =
+        Stream.of(match.get().getCaptainTeamA(), match.get().getCaptainTeamB())
+            .filter(Objects::nonNull)
+            .toList();
+    if (!captains.isEmpty()) memberRepository.incrementCaptaincies(captains);
+
+    return fines.size();
   }
 
   @Override
+  @Transactional
   public void addPlayer(long matchId, PlayerMatchStatus status, String playerName)
       throws MemberNotFoundException, MatchNotFoundException, MemberBlockedException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-
-    if (match.isClosed()) throw new MatchNotFoundException(matchId);
-
-    if (playerName.split("\\.").length != 2) {
-      throw new MemberNotFoundException(playerName);
-    }
+    if (isClosed(matchId)) throw new MatchNotFoundException(matchId);
 
     var player =
-        memberRepository
-            .findByNameAndSurname(playerName.split("\\.")[0], playerName.split("\\.")[1])
-            .orElseThrow(() -> new MemberNotFoundException(""));
+        memberRepository.findByLogin(playerName).orElseThrow(() -> new MemberNotFoundException(""));
 
     if (player.isBlocked()) throw new MemberBlockedException(playerName);
 
-    switch (status) {
-      case AVAILABLE -> {
-        match.getConfirmedPlayers().add(player.getId());
-        match.getNotAvailablePlayers().remove(player.getId());
-        match.getUnConfirmedPlayers().remove(player.getId());
-      }
-      case NOT_AVAILABLE -> {
-        match.getNotAvailablePlayers().add(player.getId());
-        match.getConfirmedPlayers().remove(player.getId());
-        match.getUnConfirmedPlayers().remove(player.getId());
-      }
+    var participantStatus =
+        switch (status) {
+          case AVAILABLE -> ParticipantStatus.CONFIRMED;
+          case NOT_AVAILABLE -> ParticipantStatus.NOT_AVAILABLE;
+        };
+
+    var participant = matchParticipantRepository.findByMatchIdAndMemberId(matchId, player.getId());
+    if (participant.isPresent()) {
+      // Repeated taps on the same answer change nothing
+      if (participant.get().getStatus() == participantStatus) return;
+      participant.get().setStatus(participantStatus);
+    } else {
+      matchParticipantRepository.save(
+          MatchParticipantEntity.builder()
+              .match(matchRepository.getReferenceById(matchId))
+              .memberId(player.getId())
+              .status(participantStatus)
+              .build());
     }
 
-    matchRepository.save(match);
+    touch(matchId);
+    publish(
+        matchId,
+        status == PlayerMatchStatus.AVAILABLE
+            ? RosterEventType.PLAYER_CONFIRMED
+            : RosterEventType.PLAYER_NOT_AVAILABLE,
+        null,
+        player.getId(),
+        null);
   }
 
   @Override
+  @Transactional
   public void addPlayerToTeamA(long matchId, long playerId)
       throws MatchNotFoundException, MemberNotFoundException, PlayerUnavailableException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    var player =
-        memberRepository.findById(playerId).orElseThrow(() -> new MemberNotFoundException(""));
+    addPlayerToTeam(matchId, playerId, Team.A);
+  }
 
-    if (match.getNotAvailablePlayers().contains(playerId)
-        || match.getUnConfirmedPlayers().contains(playerId)
-        || !match.getConfirmedPlayers().contains(playerId)) {
-      throw new PlayerUnavailableException();
-    }
+  @Override
+  @Transactional
+  public void addPlayerToTeamB(long matchId, long playerId)
+      throws MatchNotFoundException, MemberNotFoundException, PlayerUnavailableException {
+    addPlayerToTeam(matchId, playerId, Team.B);
+  }
 
-    if (match.isClosed()) throw new MatchNotFoundException(matchId);
+  @Override
+  @Transactional
+  public void removePlayerFromTeamA(long matchId, long playerId) throws MatchNotFoundException {
+    removePlayerFromTeam(matchId, playerId, Team.A);
+  }
 
-    match.getTeamAPlayers().add(player.getId());
-    match.getTeamBPlayers().remove(player.getId());
+  @Override
+  @Transactional
+  public void removePlayerFromTeamB(long matchId, long playerId) throws MatchNotFoundException {
+    removePlayerFromTeam(matchId, playerId, Team.B);
+  }
 
-    matchRepository.save(match);
+  @Override
+  @Transactional
+  public void addGuestToTeamA(long matchId, String guest) throws MatchNotFoundException {
+    addGuestToTeam(matchId, guest, Team.A);
   }
 
   @Override
-  public void addPlayerToTeamB(long matchId, long playerId)
-      throws MatchNotFoundException, MemberNotFoundException, PlayerUnavailableException {
+  @Transactional
+  public void addGuestToTeamB(long matchId, String guest) throws MatchNotFoundException {
+    addGuestToTeam(matchId, guest, Team.B);
+  }
+
+  @Override
+  @Transactional
+  public void removeGuestFromTeamA(long matchId, String guest) throws MatchNotFoundException {
+    removeGuestFromTeam(matchId, guest, Team.A);
+  }
+
+  @Override
+  @Transactional
+  public void removeGuestFromTeamB(long matchId, String guest) throws MatchNotFoundException {
+    removeGuestFromTeam(matchId, guest, Team.B);
+  }
+
+  @Override
+  @Transactional
+  public void setRandomCaptainTeamA(long matchId) throws MatchNotFoundException {
+    setRandomCaptains(matchId, List.of(Team.A));
+  }
+
+  @Override
+  @Transactional
+  public void setRandomCaptainTeamB(long matchId) throws MatchNotFoundException {
+    setRandomCaptains(matchId, List.of(Team.B));
+  }
+
+  @Override
+  @Transactional
+  public void setRandomCaptains(long matchId) throws MatchNotFoundException {
+    setRandomCaptains(matchId, List.of(Team.A, Team.B));
+  }
+
+  @Override
+  @Transactional
+  public void setLineup(long matchId, LineupRequestDto lineup)
+      throws MatchNotFoundException, PlayerUnavailableException {
     var match =
         matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    var player =
-        memberRepository.findById(playerId).orElseThrow(() -> new MemberNotFoundException(""));
+    if (match.isClosed()) throw new MatchNotFoundException(matchId);
 
-    if (match.getNotAvailablePlayers().contains(playerId)
-        || match.getUnConfirmedPlayers().contains(playerId)
-        || !match.getConfirmedPlayers().contains(playerId)) {
+    if (hasNull(lineup.teamAPlayers())
+        || hasNull(lineup.teamBPlayers())
+        || hasNull(lineup.teamAGuests())
+        || hasNull(lineup.teamBGuests())) {
       throw new PlayerUnavailableException();
     }
 
-    if (match.isClosed()) throw new MatchNotFoundException(matchId);
+    var teamA = Set.copyOf(orEmpty(lineup.teamAPlayers()));
+    var teamB = Set.copyOf(orEmpty(lineup.teamBPlayers()));
+    var confirmed = match.getConfirmedPlayers();
 
-    match.getTeamBPlayers().add(player.getId());
-    match.getTeamAPlayers().remove(player.getId());
+    if (!confirmed.containsAll(teamA)
+        || !confirmed.containsAll(teamB)
+        || teamA.stream().anyMatch(teamB::contains)
+        || (lineup.captainTeamA() != null && !teamA.contains(lineup.captainTeamA()))
+        || (lineup.captainTeamB() != null && !teamB.contains(lineup.captainTeamB()))) {
+      throw new PlayerUnavailableException();
+    }
 
-    matchRepository.save(match);
+    match.getParticipants().stream()
+        .filter(participant -> participant.getMemberId() != null)
+        .forEach(
+            participant -> {
+              var memberId = participant.getMemberId();
+              participant.setTeam(
+                  teamA.contains(memberId) ? Team.A : teamB.contains(memberId) ? Team.B : null);
+              participant.setCaptain(
+                  memberId.equals(lineup.captainTeamA())
+                      ? Team.A
+                      : memberId.equals(lineup.captainTeamB()) ? Team.B : null);
+            });
+    setGuests(match, Team.A, orEmpty(lineup.teamAGuests()));
+    setGuests(match, Team.B, orEmpty(lineup.teamBGuests()));
+
+    touch(matchId);
+    publish(matchId, RosterEventType.LINEUP_SET, null, null, null);
   }
 
   @Override
-  public void removePlayerFromTeamA(long matchId, long playerId) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamAPlayers().remove(playerId);
-    if (match.getCaptainTeamA() != null && match.getCaptainTeamA() == playerId) {
-      matchRepository.save(
-          MatchEntity.builder()
-              .id(match.getId())
-              .matchDay(match.getMatchDay())
-              .confirmedPlayers(match.getConfirmedPlayers())
-              .notAvailablePlayers(match.getNotAvailablePlayers())
-              .unConfirmedPlayers(match.getUnConfirmedPlayers())
-              .teamAPlayers(match.getTeamAPlayers())
-              .teamBPlayers(match.getTeamBPlayers())
-              .teamAGuests(match.getTeamAGuests())
-              .teamBGuests(match.getTeamBGuests())
-              .captainTeamA(null)
-              .captainTeamB(match.getCaptainTeamB())
-              .closed(match.isClosed())
-              .build());
-    } else {
-      matchRepository.save(match);
-    }
+  @Transactional
+  public void delete(long id) {
+    matchRepository.deleteById(id);
+    matchViewRepository.deleteById(id);
+    eventPublisher.publishEvent(new MatchChangedEvent(id));
   }
 
   @Override
-  public void removePlayerFromTeamB(long matchId, long playerId) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamBPlayers().remove(playerId);
-    if (match.getCaptainTeamB() != null && match.getCaptainTeamB() == playerId) {
-      matchRepository.save(
-          MatchEntity.builder()
-              .id(match.getId())
-              .matchDay(match.getMatchDay())
-              .confirmedPlayers(match.getConfirmedPlayers())
-              .notAvailablePlayers(match.getNotAvailablePlayers())
-              .unConfirmedPlayers(match.getUnConfirmedPlayers())
-              .teamAPlayers(match.getTeamAPlayers())
-              .teamBPlayers(match.getTeamBPlayers())
-              .teamAGuests(match.getTeamAGuests())
-              .teamBGuests(match.getTeamBGuests())
-              .captainTeamB(null)
-              .captainTeamA(match.getCaptainTeamA())
-              .closed(match.isClosed())
-              .build());
-    } else {
-      matchRepository.save(match);
+  public int rebuildViews() {
+    int rebuilt = 0;
+    long lastId = 0;
+    List<Long> chunk;
+    do {
+      chunk = matchRepository.findIdsAfter(lastId, PageRequest.ofSize(VIEW_REBUILD_CHUNK_SIZE));
+      var ids = chunk;
+      transactionTemplate.executeWithoutResult(status -> ids.forEach(this::render));
+      rebuilt += chunk.size();
+      if (!chunk.isEmpty()) lastId = chunk.get(chunk.size() - 1);
+    } while (chunk.size() == VIEW_REBUILD_CHUNK_SIZE);
+    refreshNext();
+    return rebuilt;
+  }
+
+  @Override
+  public CloseMatchesReportDto closePastMatches() {
+    var start = System.currentTimeMillis();
+    var today = LocalDate.now();
+    var closed = new AtomicInteger();
+    var fines = new AtomicInteger();
+    var failures = new ConcurrentHashMap<Long, String>();
+    var executor = Executors.newFixedThreadPool(closeParallelism);
+    try {
+      long lastId = 0;
+      List<Long> chunk;
+      do {
+        chunk = matchRepository.findOpenIdsBefore(today, lastId, PageRequest.ofSize(closeChunkSize));
+        chunk.stream()
+            .map(
+                id ->
+                    CompletableFuture.runAsync(
+                        () -> {
+                          try {
+                            var created = closeWithRetry(id);
+                            if (created != null) {
+                              closed.incrementAndGet();
+                              fines.addAndGet(created);
+                            }
+                          } catch (RuntimeException e) {
+                            log.error("[MATCHES] Match " + id + " could not be closed", e);
+                            failures.put(id, e.toString());
+                          }
+                        },
+                        executor))
+            .toList()
+            .forEach(CompletableFuture::join);
+        if (!chunk.isEmpty()) lastId = chunk.get(chunk.size() - 1);
+      } while (chunk.size() == closeChunkSize);
+    } finally {
+      executor.shutdown();
     }
+    return new CloseMatchesReportDto(
+        closed.get(), fines.get(), System.currentTimeMillis() - start, Map.copyOf(failures));
   }
 
   @Override
-  public void addGuestToTeamA(long matchId, String guest) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamAGuests().add(guest);
+  public void refreshNext() {
+    var built = buildNext();
+    nextMatch.accumulateAndGet(
+        built,
+        (current, candidate) ->
+            current != null
+                    && current.id() == candidate.id()
+                    && current.version() > candidate.version()
+                ? current
+                : candidate);
+  }
+
+  // Commits only the state change and an outbox event; fines and captaincies are applied by the
+  // outbox worker through applyClose. Returns the number of fines queued
+  private int closeMatch(MatchEntity match) {
+    // Freeze who never answered so the history does not change as members join or leave
+    memberRepository.findUnansweredIds(match.getId(), adminUser).stream()
+        .map(
+            memberId ->
+                MatchParticipantEntity.builder()
+                    .match(match)
+                    .memberId(memberId)
+                    .status(ParticipantStatus.UNCONFIRMED)
+                    .build())
+        .forEach(match.getParticipants()::add);
 
-    matchRepository.save(match);
+    var absentees =
+        Stream.concat(
+                match.getNotAvailablePlayers().stream(), match.getUnConfirmedPlayers().stream())
+            .toList();
+    var fined =
+        absentees.isEmpty() ? List.<Long>of() : memberRepository.findNotInjuredIds(absentees);
+    match.archiveRosters(fined);
+    match.setClosed(true);
+    outboxEventRepository.save(OutboxEventEntity.of(OutboxEventType.MATCH_CLOSED, match.getId()));
+    render(match.getId());
+    eventPublisher.publishEvent(new MatchChangedEvent(match.getId()));
+
+    return fined.size();
   }
 
-  @Override
-  public void addGuestToTeamB(long matchId, String guest) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamBGuests().add(guest);
+  // Each match closes in its own transaction; returns the fines created, or null when the match
+  // was already closed or deleted in the meantime
+  private Integer closeWithRetry(long id) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(
+            status ->
+                matchRepository
+                    .findById(id)
+                    .filter(match -> !match.isClosed())
+                    .map(this::closeMatch)
+                    .orElse(null));
+      } catch (RuntimeException e) {
+        if (attempt >= closeMaxAttempts) throw e;
+        log.warn("[MATCHES] Closing match " + id + " failed on attempt " + attempt + ": " + e);
+        try {
+          Thread.sleep(CLOSE_RETRY_BACKOFF_MILLIS * attempt);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  private void addPlayerToTeam(long matchId, long playerId, Team team)
+      throws MatchNotFoundException, MemberNotFoundException, PlayerUnavailableException {
+    var closed = isClosed(matchId);
+    if (!memberRepository.existsById(playerId)) throw new MemberNotFoundException("");
+
+    var participant =
+        matchParticipantRepository
+            .findByMatchIdAndMemberId(matchId, playerId)
+            .filter(p -> p.getStatus() == ParticipantStatus.CONFIRMED)
+            .orElseThrow(PlayerUnavailableException::new);
+
+    if (closed) throw new MatchNotFoundException(matchId);
+    if (participant.getTeam() == team) return;
+
+    participant.setTeam(team);
 
-    matchRepository.save(match);
+    touch(matchId);
+    publish(matchId, RosterEventType.TEAM_PLAYER_ADDED, team, playerId, null);
   }
 
-  @Override
-  public void removeGuestFromTeamA(long matchId, String guest) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamAGuests().remove(guest);
+  private void removePlayerFromTeam(long matchId, long playerId, Team team)
+      throws MatchNotFoundException {
+    checkExists(matchId);
+    var participant =
+        matchParticipantRepository
+            .findByMatchIdAndMemberId(matchId, playerId)
+            .filter(p -> p.getTeam() == team || p.getCaptain() == team);
+    if (participant.isEmpty()) return;
+
+    if (participant.get().getTeam() == team) participant.get().setTeam(null);
+    if (participant.get().getCaptain() == team) participant.get().setCaptain(null);
 
-    matchRepository.save(match);
+    touch(matchId);
+    publish(matchId, RosterEventType.TEAM_PLAYER_REMOVED, team, playerId, null);
   }
 
-  @Override
-  public void removeGuestFromTeamB(long matchId, String guest) throws MatchNotFoundException {
-    var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
-    match.getTeamBGuests().remove(guest);
+  private void addGuestToTeam(long matchId, String guest, Team team)
+      throws MatchNotFoundException {
+    checkExists(matchId);
+    matchParticipantRepository.save(
+        MatchParticipantEntity.builder()
+            .match(matchRepository.getReferenceById(matchId))
+            .guest(guest)
+            .status(ParticipantStatus.CONFIRMED)
+            .team(team)
+            .build());
 
-    matchRepository.save(match);
+    touch(matchId);
+    publish(matchId, RosterEventType.GUEST_ADDED, team, null, guest);
   }
 
-  @Override
-  public void setRandomCaptainTeamA(long matchId) throws MatchNotFoundException {
+  private void removeGuestFromTeam(long matchId, String guest, Team team)
+      throws MatchNotFoundException {
     var match =
         matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
+    // Removed through the collection so orphan removal deletes the row when render reloads the
+    // match; deleting it through the repository would be undone by the cascade on participants
+    var participant =
+        match.getParticipants().stream()
+            .filter(p -> guest.equals(p.getGuest()) && p.getTeam() == team)
+            .min(Comparator.comparing(MatchParticipantEntity::getId));
+    if (participant.isEmpty()) return;
+
+    match.getParticipants().remove(participant.get());
+
+    touch(matchId);
+    publish(matchId, RosterEventType.GUEST_REMOVED, team, null, guest);
+  }
 
-    if (match.getTeamAPlayers().isEmpty()) {
+  private void setRandomCaptains(long matchId, List<Team> teams) throws MatchNotFoundException {
+    checkExists(matchId);
+
+    var captains = captainService.pickCaptains(matchId, teams);
+    if (captains.isEmpty()) {
       return;
     }
 
-    int minimumCaptaincies =
-        match.getTeamAPlayers().stream()
-            .map(memberRepository::findById)
-            .filter(Optional::isPresent)
-            .map(memberEntity -> memberEntity.get().getNCaptaincies())
-            .min(Comparator.naturalOrder())
-            .orElse(0);
-
-    var listOfPossibleCaptains =
-        match.getTeamAPlayers().stream()
-            .map(memberRepository::findById)
-            .filter(Optional::isPresent)
-            .filter(memberEntity -> memberEntity.get().getNCaptaincies() == minimumCaptaincies)
-            .map(Optional::get)
-            .toList();
+    captains.forEach(
+        (team, captainId) -> {
+          matchParticipantRepository.clearCaptain(matchId, team);
+          matchParticipantRepository
+              .findByMatchIdAndMemberId(matchId, captainId)
+              .ifPresent(participant -> participant.setCaptain(team));
+        });
+
+    touch(matchId);
+    captains.forEach(
+        (team, captainId) -> publish(matchId, RosterEventType.CAPTAIN_SET, team, captainId, null));
+  }
 
-    matchRepository.save(
-        MatchEntity.builder()
-            .id(match.getId())
-            .matchDay(match.getMatchDay())
-            .confirmedPlayers(match.getConfirmedPlayers())
-            .notAvailablePlayers(match.getNotAvailablePlayers())
-            .unConfirmedPlayers(match.getUnConfirmedPlayers())
-            .teamAPlayers(match.getTeamAPlayers())
-            .teamBPlayers(match.getTeamBPlayers())
-            .teamAGuests(match.getTeamAGuests())
-            .teamBGuests(match.getTeamBGuests())
-            .captainTeamA(
-                listOfPossibleCaptains
-                    .get(new Random().nextInt(listOfPossibleCaptains.size()))
-                    .getId())
-            .captainTeamB(match.getCaptainTeamB())
-            .closed(match.isClosed())
-            .build());
+  private void publish(long matchId, RosterEventType type, Team team, Long memberId, String guest) {
+    var player = memberId == null ? null : memberCacheService.get(memberId);
+    eventPublisher.publishEvent(new RosterEventDto(matchId, type, team, player, guest));
   }
 
-  @Override
-  public void setRandomCaptainTeamB(long matchId) throws MatchNotFoundException {
+  // Keeps guest rows whose name is still in the lineup and only adds or removes the difference
+  private void setGuests(MatchEntity match, Team team, List<String> guests) {
+    var pending = new ArrayList<>(guests);
+    match
+        .getParticipants()
+        .removeIf(
+            participant ->
+                participant.getGuest() != null
+                    && participant.getTeam() == team
+                    && !pending.remove(participant.getGuest()));
+    pending.forEach(
+        guest ->
+            match
+                .getParticipants()
+                .add(
+                    MatchParticipantEntity.builder()
+                        .match(match)
+                        .guest(guest)
+                        .status(ParticipantStatus.CONFIRMED)
+                        .team(team)
+                        .build()));
+  }
+
+  private <T> List<T> orEmpty(List<T> list) {
+    return list == null ? List.of() : list;
+  }
+
+  private boolean hasNull(List<?> list) {
+    return list != null && list.stream().anyMatch(Objects::isNull);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+  public void onMatchChanged(MatchChangedEvent event) {
+    refreshNext();
+  }
+
+  // Renamed, new and deleted members change the views that list them
+  // Each view is rewritten in its own transaction that first locks the match row, so it waits for
+  // a concurrent roster change and renders what that change committed instead of overwriting its
+  // view with an older snapshot
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onMemberChanged(MemberChangedEvent event) {
+    var requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+    requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    var ids = requiresNew.execute(status -> matchRepository.findIdsShowingMember(event.memberId()));
+    ids.forEach(
+        id ->
+            requiresNew.executeWithoutResult(
+                status -> {
+                  if (matchRepository.findForUpdateById(id).isPresent()) render(id);
+                }));
+    requiresNew.executeWithoutResult(status -> refreshNext());
+  }
+
+  private boolean isClosed(long matchId) throws MatchNotFoundException {
+    return matchRepository
+        .findClosedById(matchId)
+        .orElseThrow(() -> new MatchNotFoundException(matchId));
+  }
+
+  private void checkExists(long matchId) throws MatchNotFoundException {
+    if (!matchRepository.existsById(matchId)) throw new MatchNotFoundException(matchId);
+  }
+
+  // Roster changes only write match_participant rows, so bump the match version for the ETag
+  // explicitly; the next match snapshot is replaced once the transaction commits
+  private void touch(long matchId) {
+    matchRepository.incrementVersion(matchId);
+    render(matchId);
+    eventPublisher.publishEvent(new MatchChangedEvent(matchId));
+  }
+
+  // Rewrites the read model row from what the current transaction has written so far. Roster
+  // changes go through single participant rows and a bulk version update, so both are re-read
+  // instead of trusting the match instance cached in the persistence context
+  private MatchViewEntity render(long matchId) {
     var match =
-        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
+        matchRepository
+            .findById(matchId)
+            .orElseThrow(() -> new IllegalStateException("Match " + matchId + " not found"));
+    var version = matchRepository.findVersionById(matchId).orElse(match.getVersion());
+    var current =
+        match.toBuilder()
+            .participants(
+                new LinkedHashSet<>(matchParticipantRepository.findByMatchIdOrderById(matchId)))
+            .version(version)
+            .build();
+    try {
+      var json = objectMapper.writeValueAsString(matchToDto(current));
+      return matchViewRepository.save(
+          MatchViewEntity.builder()
+              .matchId(matchId)
+              .matchVersion(version)
+              .json(json)
+              .etag(getETag(matchId, version, json))
+              .build());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Match " + matchId + " could not be rendered", e);
+    }
+  }
 
-    if (match.getTeamBPlayers().isEmpty()) {
-      return;
+  private MatchDto fromView(MatchViewEntity view) {
+    try {
+      return objectMapper.readValue(view.getJson(), MatchDto.class);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Match view " + view.getMatchId() + " is corrupt", e);
     }
+  }
 
-    int minimumCaptaincies =
-        match.getTeamBPlayers().stream()
-            .map(memberRepository::findById)
-            .filter(Optional::isPresent)
-            .map(memberEntity -> memberEntity.get().getNCaptaincies())
-            .min(Comparator.naturalOrder())
-            .orElse(0);
-
-    var listOfPossibleCaptains =
-        match.getTeamBPlayers().stream()
-            .map(memberRepository::findById)
-            .filter(Optional::isPresent)
-            .filter(memberEntity -> memberEntity.get().getNCaptaincies() == minimumCaptaincies)
-            .map(Optional::get)
-            .toList();
+  private NextMatch getNextSnapshot() {
+    var next = nextMatch.get();
+    if (next == null
+        || next.generation() != memberCacheService.getGeneration()
+        || System.currentTimeMillis() >= next.expiresAt()) {
+      refreshNext();
+      next = nextMatch.get();
+    }
+    return next;
+  }
 
-    matchRepository.save(
-        MatchEntity.builder()
-            .id(match.getId())
-            .matchDay(match.getMatchDay())
-            .confirmedPlayers(match.getConfirmedPlayers())
-            .notAvailablePlayers(match.getNotAvailablePlayers())
-            .unConfirmedPlayers(match.getUnConfirmedPlayers())
-            .teamAPlayers(match.getTeamAPlayers())
-            .teamBPlayers(match.getTeamBPlayers())
-            .teamAGuests(match.getTeamAGuests())
-            .teamBGuests(match.getTeamBGuests())
-            .captainTeamB(
-                listOfPossibleCaptains
-                    .get(new Random().nextInt(listOfPossibleCaptains.size()))
-                    .getId())
-            .captainTeamA(match.getCaptainTeamA())
-            .closed(match.isClosed())
-            .build());
+  private NextMatch buildNext() {
+    var generation = memberCacheService.getGeneration();
+    var today = LocalDate.now();
+    var expiresAt =
+        today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    var ids = matchRepository.findIdsByMatchDayGreaterThanEqual(today, PageRequest.ofSize(1));
+    if (ids.isEmpty()) return new NextMatch(-1, -1, null, null, generation, expiresAt);
+
+    var id = ids.get(0);
+    var view =
+        matchViewRepository
+            .findById(id)
+            .filter(rendered -> rendered.getEtag() != null)
+            .orElseGet(() -> transactionTemplate.execute(status -> render(id)));
+    return new NextMatch(
+        id, view.getMatchVersion(), fromView(view), view.getEtag(), generation, expiresAt);
   }
 
-  @Override
-  public void delete(long id) {
-    matchRepository.deleteById(id);
+  // Derived from the rendered json itself, so it changes exactly when the served body does
+  private String getETag(long id, long version, String json) {
+    try {
+      var digest =
+          MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+      return id + "-" + version + "-" + HexFormat.of().formatHex(digest, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
   }
 
-  @Override
-  public void closePastMatches() {
-    matchRepository
-        .findByClosedAndMatchDayBefore(false, LocalDate.now())
-        .forEach(
-            matchEntity -> {
-              try {
-                close(matchEntity.getId());
-              } catch (MatchNotFoundException e) {
-                throw new RuntimeException(e);
-              }
-            });
+  private int pageSize(Integer elements) throws InvalidPageException {
+    if (elements == null) return defaultPageElements;
+    if (elements < 1 || elements > maxPageElements)
+      throw new InvalidPageException("elements must be between 1 and " + maxPageElements);
+    return elements;
+  }
+
+  // The cursor is the (matchDay, id) of the last match received, so both parts go together
+  private List<Long> getClosedIds(LocalDate afterMatchDay, Long afterId, int elements)
+      throws InvalidPageException {
+    if ((afterMatchDay == null) != (afterId == null))
+      throw new InvalidPageException("afterMatchDay and afterId must be sent together");
+    var page = PageRequest.ofSize(elements);
+    return afterMatchDay == null
+        ? matchRepository.findClosedIds(page)
+        : matchRepository.findClosedIdsBefore(afterMatchDay, afterId, page);
+  }
+
+  private Map<Long, MatchPlayerDto> getPlayers(Collection<MatchEntity> matches) {
+    var ids = matches.stream().flatMap(this::getPlayerIds).collect(Collectors.toSet());
+    return memberCacheService.get(ids);
+  }
+
+  private Stream<Long> getPlayerIds(MatchEntity entity) {
+    return Stream.of(
+            entity.getConfirmedPlayers().stream(),
+            entity.getUnConfirmedPlayers().stream(),
+            entity.getNotAvailablePlayers().stream(),
+            entity.getTeamAPlayers().stream(),
+            entity.getTeamBPlayers().stream(),
+            Stream.ofNullable(entity.getCaptainTeamA()),
+            Stream.ofNullable(entity.getCaptainTeamB()))
+        .flatMap(ids -> ids);
+  }
+
+  private MatchPlayerDto getPlayer(Map<Long, MatchPlayerDto> players, long playerId) {
+    var player = players.get(playerId);
+    return player != null ? player : new MatchPlayerDto(playerId, "Not found", null);
   }
 
-  private MatchPlayerDto getPlayer(long playerId) {
-    var member = memberRepository.findById(playerId);
-    return new MatchPlayerDto(
-        playerId,
-        member
-            .map(memberEntity -> memberEntity.getName() + " " + memberEntity.getSurname())
-            .orElse("Not found"),
-        member.map(MemberEntity::getAlias).orElse(null));
+  // Open matches only store the members that answered; the rest are derived with an anti-join
+  private Set<Long> getUnConfirmedPlayers(MatchEntity entity) {
+    if (entity.isClosed()) return entity.getUnConfirmedPlayers();
+    var unConfirmed = new HashSet<>(entity.getUnConfirmedPlayers());
+    unConfirmed.addAll(memberRepository.findUnansweredIds(entity.getId(), adminUser));
+    return unConfirmed;
   }
 
   private MatchDto matchToDto(MatchEntity entity) {
+    var unConfirmed = getUnConfirmedPlayers(entity);
+    var ids = Stream.concat(getPlayerIds(entity), unConfirmed.stream()).collect(Collectors.toSet());
+    return matchToDto(entity, unConfirmed, memberCacheService.get(ids));
+  }
+
+  private MatchDto matchToDto(MatchEntity entity, Map<Long, MatchPlayerDto> players) {
+    return matchToDto(entity, entity.getUnConfirmedPlayers(), players);
+  }
+
+  private MatchDto matchToDto(
+      MatchEntity entity, Set<Long> unConfirmed, Map<Long, MatchPlayerDto> players) {
     return new MatchDto(
         entity.getId(),
         formatter.format(entity.getMatchDay()),
-        entity.getConfirmedPlayers().stream().map(this::getPlayer).collect(Collectors.toSet()),
-        entity.getUnConfirmedPlayers().stream().map(this::getPlayer).collect(Collectors.toSet()),
-        entity.getNotAvailablePlayers().stream().map(this::getPlayer).collect(Collectors.toSet()),
-        entity.getTeamAPlayers().stream().map(this::getPlayer).toList(),
-        entity.getTeamBPlayers().stream().map(this::getPlayer).toList(),
+        entity.getConfirmedPlayers().stream()
+            .map(id -> getPlayer(players, id))
+            .collect(Collectors.toSet()),
+        unConfirmed.stream()
+            .map(id -> getPlayer(players, id))
+            .collect(Collectors.toSet()),
+        entity.getNotAvailablePlayers().stream()
+            .map(id -> getPlayer(players, id))
+            .collect(Collectors.toSet()),
+        entity.getTeamAPlayers().stream().map(id -> getPlayer(players, id)).toList(),
+        entity.getTeamBPlayers().stream().map(id -> getPlayer(players, id)).toList(),
         entity.getTeamAGuests(),
         entity.getTeamBGuests(),
-        entity.getCaptainTeamA() != null ? getPlayer(entity.getCaptainTeamA()) : null,
-        entity.getCaptainTeamB() != null ? getPlayer(entity.getCaptainTeamB()) : null,
+        entity.getCaptainTeamA() != null ? getPlayer(players, entity.getCaptainTeamA()) : null,
+        entity.getCaptainTeamB() != null ? getPlayer(players, entity.getCaptainTeamB()) : null,
         entity.isClosed());
   }
+
+  private MatchSummaryDto summaryToDto(
+      MatchEntity entity,
+      List<ParticipantCount> counts,
+      List<Captain> captains,
+      Map<Long, MatchPlayerDto> players) {
+    long confirmed = 0, unConfirmed = 0, notAvailable = 0;
+    long teamA = 0, teamB = 0, guestsA = 0, guestsB = 0;
+    for (var count : counts) {
+      switch (count.getStatus()) {
+        case CONFIRMED -> confirmed += count.getMembers();
+        case UNCONFIRMED -> unConfirmed += count.getMembers();
+        case NOT_AVAILABLE -> notAvailable += count.getMembers();
+      }
+      if (count.getTeam() == Team.A) {
+        teamA += count.getMembers();
+        guestsA += count.getGuests();
+      } else if (count.getTeam() == Team.B) {
+        teamB += count.getMembers();
+        guestsB += count.getGuests();
+      }
+    }
+    MatchPlayerDto captainA = null, captainB = null;
+    for (var captain : captains) {
+      if (captain.getTeam() == Team.A) captainA = getPlayer(players, captain.getMemberId());
+      else captainB = getPlayer(players, captain.getMemberId());
+    }
+    return new MatchSummaryDto(
+        entity.getId(),
+        formatter.format(entity.getMatchDay()),
+        entity.isClosed(),
+        confirmed,
+        unConfirmed,
+        notAvailable,
+        teamA,
+        teamB,
+        guestsA,
+        guestsB,
+        captainA,
+        captainB);
+  }
 }
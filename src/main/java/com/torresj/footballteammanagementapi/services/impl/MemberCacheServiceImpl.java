@@ -0,0 +1,129 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.MatchPlayerDto;
+import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.repositories.MemberRepository;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Bounded LRU of the "name surname" / alias projection used to render matches and movements
+@Service
+@RequiredArgsConstructor
+public class MemberCacheServiceImpl implements MemberCacheService {
+
+  private static final String CACHE_NAME = "members";
+
+  private final MemberRepository memberRepository;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${members.cache.max-size:512}")
+  private final int maxSize;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  // Bumped on every eviction, under the cache lock, so a load that raced with it does not store a
+  // stale entry. Also read without the lock as the generation that invalidates the next match
+  // snapshot once a member it shows changes
+  private final AtomicLong epoch = new AtomicLong();
+
+  private final Map<Long, MatchPlayerDto> cache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MatchPlayerDto> eldest) {
+          if (size() > maxSize) {
+            evictions.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  @PostConstruct
+  void registerMetrics() {
+    FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "hit")
+        .description("The number of times cache lookup methods have returned a cached value.")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+        .tags("cache", CACHE_NAME, "result", "miss")
+        .description("The number of times cache lookup methods have returned an uncached value.")
+        .register(meterRegistry);
+    FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+        .tags("cache", CACHE_NAME)
+        .description("The number of times the cache was evicted.")
+        .register(meterRegistry);
+    Gauge.builder("cache.size", this, MemberCacheServiceImpl::size)
+        .tags("cache", CACHE_NAME)
+        .description("The number of entries in this cache.")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public MatchPlayerDto get(long memberId) {
+    return get(List.of(memberId))
+        .getOrDefault(memberId, new MatchPlayerDto(memberId, "Not found", null));
+  }
+
+  @Override
+  public Map<Long, MatchPlayerDto> get(Collection<Long> memberIds) {
+    var players = new HashMap<Long, MatchPlayerDto>();
+    var missing = new HashSet<Long>();
+    long loadEpoch;
+    synchronized (cache) {
+      loadEpoch = epoch.get();
+      for (Long id : memberIds) {
+        var player = cache.get(id);
+        if (player != null) players.put(id, player);
+        else missing.add(id);
+      }
+    }
+    hits.add(players.size());
+    if (missing.isEmpty()) return players;
+
+    misses.add(missing.size());
+    var loaded =
+        memberRepository.findAllById(missing).stream()
+            .map(MemberCacheServiceImpl::toPlayer)
+            .toList();
+    synchronized (cache) {
+      if (loadEpoch == epoch.get()) loaded.forEach(player -> cache.put(player.id(), player));
+    }
+    loaded.forEach(player -> players.put(player.id(), player));
+    return players;
+  }
+
+  @Override
+  public void evict(long memberId) {
+    synchronized (cache) {
+      epoch.incrementAndGet();
+      cache.remove(memberId);
+    }
+  }
+
+  @Override
+  public long getGeneration() {
+    return epoch.get();
+  }
+
+  private int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  private static MatchPlayerDto toPlayer(MemberEntity member) {
+    return new MatchPlayerDto(
+        member.getId(), member.getName() + " " + member.getSurname(), member.getAlias());
+  }
+}
@@ -2,16 +2,31 @@ package com.torresj.footballteammanagementapi.services.impl;
 
 import com.torresj.footballteammanagementapi.dtos.MemberDto;
 import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.enums.MemberSort;
 import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.events.MemberChangedEvent;
+import com.torresj.footballteammanagementapi.exceptions.InvalidPageException;
 import com.torresj.footballteammanagementapi.exceptions.MemberAlreadyExistsException;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
+import com.torresj.footballteammanagementapi.exceptions.MemberUsernameTakenException;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
+import com.torresj.footballteammanagementapi.repositories.MemberRepository.MemberVersion;
+import com.torresj.footballteammanagementapi.repositories.MemberSpecifications;
 import com.torresj.footballteammanagementapi.security.CustomUserDetails;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
 import com.torresj.footballteammanagementapi.services.MemberService;
 import com.torresj.footballteammanagementapi.services.MovementService;
+import com.torresj.footballteammanagementapi.utils.Usernames;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -23,10 +38,18 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
 
   private final MemberRepository memberRepository;
   private final MovementService movementService;
+  private final MemberCacheService memberCacheService;
+  private final ApplicationEventPublisher eventPublisher;
 
   @Value("${admin.user}")
   private final String adminUser;
 
+  @Value("${members.page.default-elements:20}")
+  private final int defaultPageElements;
+
+  @Value("${members.page.max-elements:100}")
+  private final int maxPageElements;
+
   @Override
   public MemberDto get(long id) throws MemberNotFoundException {
     var member = memberRepository.findById(id).orElseThrow(() -> new MemberNotFoundException(""));
@@ -40,55 +63,29 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
         member.getRole(),
         movementService.getBalance(id),
         member.isInjured(),
-        member.isBlocked());
+        member.isBlocked(),
+        member.getRating());
   }
 
   @Override
   public void setInjured(long id, boolean injured) throws MemberNotFoundException {
-    var member = memberRepository.findById(id).orElseThrow(() -> new MemberNotFoundException(""));
-    memberRepository.save(
-        MemberEntity.builder()
-            .id(member.getId())
-            .name(member.getName())
-            .alias(member.getAlias())
-            .surname(member.getSurname())
-            .phone(member.getPhone())
-            .role(member.getRole())
-            .nCaptaincies(member.getNCaptaincies())
-            .nonce(member.getNonce())
-            .password(member.getPassword())
-            .injured(injured)
-            .build());
+    if (memberRepository.updateInjured(id, injured) == 0) throw new MemberNotFoundException("");
   }
 
   @Override
   public void setBlocked(long id, boolean blocked) throws MemberNotFoundException {
-    var member = memberRepository.findById(id).orElseThrow(() -> new MemberNotFoundException(""));
-    memberRepository.save(
-        MemberEntity.builder()
-            .id(member.getId())
-            .name(member.getName())
-            .alias(member.getAlias())
-            .surname(member.getSurname())
-            .phone(member.getPhone())
-            .role(member.getRole())
-            .nCaptaincies(member.getNCaptaincies())
-            .nonce(member.getNonce())
-            .password(member.getPassword())
-            .injured(member.isInjured())
-            .blocked(blocked)
-            .build());
+    if (memberRepository.updateBlocked(id, blocked) == 0) throw new MemberNotFoundException("");
+  }
+
+  @Override
+  public void setRating(long id, int rating) throws MemberNotFoundException {
+    if (memberRepository.updateRating(id, rating) == 0) throw new MemberNotFoundException("");
   }
 
   @Override
   public MemberDto get(String username) throws MemberNotFoundException {
-    if (username.split("\\.").length != 2) {
-      throw new MemberNotFoundException(username);
-    }
     var member =
-        memberRepository
-            .findByNameAndSurname(username.split("\\.")[0], username.split("\\.")[1])
-            .orElseThrow(() -> new MemberNotFoundException(""));
+        memberRepository.findByLogin(username).orElseThrow(() -> new MemberNotFoundException(""));
     return new MemberDto(
         member.getId(),
         member.getName(),
@@ -99,13 +96,80 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
         member.getRole(),
         movementService.getBalance(member.getId()),
         member.isInjured(),
-        member.isBlocked());
+        member.isBlocked(),
+        member.getRating());
+  }
+
+  @Override
+  public String getETag(long id) throws MemberNotFoundException {
+    var member =
+        memberRepository.findVersionById(id).orElseThrow(() -> new MemberNotFoundException(""));
+    return getETag(member);
+  }
+
+  @Override
+  public String getETag(String username) throws MemberNotFoundException {
+    var member =
+        memberRepository
+            .findVersionByLogin(username)
+            .orElseThrow(() -> new MemberNotFoundException(""));
+    return getETag(member);
   }
 
   @Override
   public List<MemberDto> get() {
-    return memberRepository.findAll().stream()
-        .map(
+    return find(null, null, null, null, null, Sort.Direction.ASC, Pageable.unpaged()).getContent();
+  }
+
+  @Override
+  public Page<MemberDto> get(
+      Boolean injured,
+      Boolean blocked,
+      Double balanceBelow,
+      String search,
+      MemberSort sort,
+      Sort.Direction direction,
+      Integer nElements,
+      Integer nPage)
+      throws InvalidPageException {
+    if (nElements == null && nPage == null)
+      return find(
+          injured,
+          blocked,
+          balanceBelow,
+          search,
+          sort,
+          direction,
+          PageRequest.of(0, defaultPageElements));
+    if (nElements == null || nPage == null)
+      throw new InvalidPageException("page and elements must be given together");
+    if (nPage < 0) throw new InvalidPageException("page must not be negative");
+    if (nElements < 1 || nElements > maxPageElements)
+      throw new InvalidPageException("elements must be between 1 and " + maxPageElements);
+    return find(
+        injured, blocked, balanceBelow, search, sort, direction, PageRequest.of(nPage, nElements));
+  }
+
+  private Page<MemberDto> find(
+      Boolean injured,
+      Boolean blocked,
+      Double balanceBelow,
+      String search,
+      MemberSort sort,
+      Sort.Direction direction,
+      Pageable pageRequest) {
+    var members =
+        memberRepository.findAll(
+            Specification.where(MemberSpecifications.notNamed(adminUser))
+                .and(MemberSpecifications.injured(injured))
+                .and(MemberSpecifications.blocked(blocked))
+                .and(MemberSpecifications.balanceBelow(balanceBelow))
+                .and(MemberSpecifications.nameOrAliasStartsWith(search))
+                .and(MemberSpecifications.orderBy(sort, direction)),
+            pageRequest);
+    var balances =
+        movementService.getBalances(members.map(MemberEntity::getId).getContent());
+    return members.map(
             entity ->
                 new MemberDto(
                     entity.getId(),
@@ -115,51 +179,37 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
                     entity.getPhone(),
                     entity.getNCaptaincies(),
                     entity.getRole(),
-                    movementService.getBalance(entity.getId()),
+                    balances.getOrDefault(entity.getId(), 0.0),
                     entity.isInjured(),
-                    entity.isBlocked()))
-        .filter(member -> !adminUser.equals(member.name()))
-        .toList();
+                    entity.isBlocked(),
+                    entity.getRating()));
   }
 
   @Override
   public MemberDto update(
       long id, String name, String alias, String surname, String phone, int nCaptaincies, Role role)
-      throws MemberNotFoundException {
-    var member = memberRepository.findById(id).orElseThrow(() -> new MemberNotFoundException(""));
-    var memberUpdated =
-        memberRepository.save(
-            MemberEntity.builder()
-                .id(member.getId())
-                .name(name)
-                .alias(alias)
-                .surname(surname)
-                .phone(phone)
-                .role(role)
-                .nCaptaincies(nCaptaincies)
-                .nonce(member.getNonce())
-                .password(member.getPassword())
-                .injured(member.isInjured())
-                .blocked(member.isBlocked())
-                .build());
-    return new MemberDto(
-        memberUpdated.getId(),
-        name,
-        alias,
-        surname,
-        phone,
-        nCaptaincies,
-        role,
-        movementService.getBalance(id),
-        member.isInjured(),
-        member.isBlocked());
+      throws MemberNotFoundException, MemberUsernameTakenException {
+    var username = Usernames.of(name, surname);
+    int updated;
+    try {
+      updated =
+          memberRepository.updateProfile(
+              id, name, alias, surname, username, phone, nCaptaincies, role);
+    } catch (DataIntegrityViolationException e) {
+      // The unique username index rejects renaming onto another member
+      throw new MemberUsernameTakenException(username);
+    }
+    if (updated == 0) throw new MemberNotFoundException("");
+    memberCacheService.evict(id);
+    eventPublisher.publishEvent(new MemberChangedEvent(id));
+    return get(id);
   }
 
   @Override
   public MemberDto create(
       String name, String alias, String surname, String phone, String password, Role role)
       throws MemberAlreadyExistsException {
-    if (memberRepository.findByNameAndSurname(name, surname).isPresent())
+    if (memberRepository.existsByUsername(Usernames.of(name, surname)))
       throw new MemberAlreadyExistsException(name);
 
     var member =
@@ -174,6 +224,9 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
                 .injured(false)
                 .blocked(false)
                 .build());
+    // New members join the unconfirmed roster of open matches, so their views are stale
+    memberCacheService.evict(member.getId());
+    eventPublisher.publishEvent(new MemberChangedEvent(member.getId()));
 
     return new MemberDto(
         member.getId(),
@@ -185,73 +238,51 @@ public class MemberServiceImpl implements MemberService, UserDetailsService {
         member.getRole(),
         movementService.getBalance(member.getId()),
         member.isInjured(),
-        member.isBlocked());
+        member.isBlocked(),
+        member.getRating());
   }
 
   @Override
   public void updateMyPassword(String user, String newPassword) throws MemberNotFoundException {
-    if (user.split("\\.").length != 2) {
-      throw new MemberNotFoundException(user);
-    }
-    var member =
-        memberRepository
-            .findByNameAndSurname(user.split("\\.")[0], user.split("\\.")[1])
-            .orElseThrow(() -> new MemberNotFoundException(""));
-    memberRepository.save(
-        MemberEntity.builder()
-            .id(member.getId())
-            .name(member.getName())
-            .alias(member.getAlias())
-            .surname(member.getSurname())
-            .password(newPassword)
-            .nonce(member.getNonce())
-            .nCaptaincies(member.getNCaptaincies())
-            .role(member.getRole())
-            .phone(member.getPhone())
-            .injured(member.isInjured())
-            .blocked(member.isBlocked())
-            .build());
+    var username = Usernames.normalize(user);
+    if (username == null || memberRepository.updatePassword(username, newPassword) == 0)
+      throw new MemberNotFoundException("");
   }
 
   @Override
   public void updateMyAlias(String user, String alias) throws MemberNotFoundException {
-    if (user.split("\\.").length != 2) {
-      throw new MemberNotFoundException(user);
-    }
     var member =
         memberRepository
-            .findByNameAndSurname(user.split("\\.")[0], user.split("\\.")[1])
+            .findVersionByLogin(user)
             .orElseThrow(() -> new MemberNotFoundException(""));
-    memberRepository.save(
-        MemberEntity.builder()
-            .id(member.getId())
-            .name(member.getName())
-            .alias(alias)
-            .surname(member.getSurname())
-            .password(member.getPassword())
-            .nonce(member.getNonce())
-            .nCaptaincies(member.getNCaptaincies())
-            .role(member.getRole())
-            .phone(member.getPhone())
-            .injured(member.isInjured())
-            .blocked(member.isBlocked())
-            .build());
+    if (memberRepository.updateAlias(member.getId(), alias) == 0)
+      throw new MemberNotFoundException("");
+    memberCacheService.evict(member.getId());
+    eventPublisher.publishEvent(new MemberChangedEvent(member.getId()));
   }
 
   @Override
   public void delete(long id) {
     memberRepository.deleteById(id);
+    memberCacheService.evict(id);
+    eventPublisher.publishEvent(new MemberChangedEvent(id));
   }
 
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-    if (username.split("\\.").length != 2) {
-      throw new UsernameNotFoundException("User not found !");
-    }
     MemberEntity member =
         memberRepository
-            .findByNameAndSurname(username.split("\\.")[0], username.split("\\.")[1])
+            .findByLogin(username)
             .orElseThrow(() -> new UsernameNotFoundException("User not found !"));
     return new CustomUserDetails(member);
   }
+
+  // Movements do not touch the member row, so the balance is part of the tag
+  private String getETag(MemberVersion member) {
+    return member.getId()
+        + "-"
+        + member.getVersion()
+        + "-"
+        + movementService.getBalance(member.getId());
+  }
 }
@@ -1,36 +1,57 @@
 package com.torresj.footballteammanagementapi.services.impl;
 
+import com.torresj.footballteammanagementapi.dtos.MatchPlayerDto;
 import com.torresj.footballteammanagementapi.dtos.MovementDto;
 import com.torresj.footballteammanagementapi.dtos.TotalBalanceDto;
+import com.torresj.footballteammanagementapi.entities.MemberBalanceEntity;
+import com.torresj.footballteammanagementapi.entities.MemberEntity;
 import com.torresj.footballteammanagementapi.entities.MovementEntity;
 import com.torresj.footballteammanagementapi.enums.MovementType;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
 import com.torresj.footballteammanagementapi.exceptions.MovementNotFoundException;
+import com.torresj.footballteammanagementapi.repositories.MemberBalanceRepository;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
 import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.repositories.MovementRepository.MemberBalance;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
 import com.torresj.footballteammanagementapi.services.MovementService;
 
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MovementServiceImpl implements MovementService {
 
     private final MovementRepository movementRepository;
     private final MemberRepository memberRepository;
+    private final MemberBalanceRepository memberBalanceRepository;
+    private final MemberCacheService memberCacheService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${admin.user}")
     private final String adminUser;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    private static final double BALANCE_TOLERANCE = 1e-6;
+
     @Override
     public Page<MovementDto> get(Long memberId, String filter, int nElements, int nPage) {
         var pageRequest = PageRequest.of(nPage, nElements, Sort.by(Sort.Direction.DESC, "createdOn"));
@@ -46,32 +67,96 @@ public class MovementServiceImpl implements MovementService {
                     .findByMemberIdAndDescriptionContainingIgnoreCase(memberId, filter, pageRequest);
         }
 
-        return pageEntity.map(this::entityToDto);
+        var players = getPlayers(pageEntity.getContent());
+        return pageEntity.map(movement -> entityToDto(movement, players));
     }
 
     @Override
     public MovementDto get(long id) throws MovementNotFoundException {
         var movement =
                 movementRepository.findById(id).orElseThrow(() -> new MovementNotFoundException(id));
-        return entityToDto(movement);
+        return entityToDto(movement, getPlayers(List.of(movement)));
     }
 
     @Override
     public List<MovementDto> getByMember(long memberId) throws MemberNotFoundException {
         memberRepository.findById(memberId).orElseThrow(() -> new MemberNotFoundException(""));
-        return movementRepository.findByMemberId(memberId, Sort.by(Sort.Direction.DESC, "createdOn")).stream()
-                .map(this::entityToDto)
-                .toList();
+        var movements =
+                movementRepository.findByMemberId(memberId, Sort.by(Sort.Direction.DESC, "createdOn"));
+        var players = getPlayers(movements);
+        return movements.stream().map(movement -> entityToDto(movement, players)).toList();
     }
 
     @Override
     public double getBalance(long memberId) {
-        return movementRepository.findByMemberId(memberId, Sort.by(Sort.Direction.DESC, "createdOn")).stream()
-                .mapToDouble(MovementEntity::getAmount)
-                .sum();
+        return memberBalanceRepository.findById(memberId)
+                .map(MemberBalanceEntity::getBalance)
+                .orElse(0.0);
+    }
+
+    @Override
+    public Map<Long, Double> getBalances() {
+        return memberBalanceRepository.findAll().stream()
+                .collect(Collectors.toMap(MemberBalanceEntity::getMemberId, MemberBalanceEntity::getBalance));
+    }
+
+    @Override
+    public Map<Long, Double> getBalances(Collection<Long> memberIds) {
+        if (memberIds.isEmpty()) return Map.of();
+        return memberBalanceRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(MemberBalanceEntity::getMemberId, MemberBalanceEntity::getBalance));
+    }
+
+    @Override
+    @Transactional
+    public void addToBalances(Collection<Long> memberIds, double amount) {
+        if (memberIds.isEmpty() || amount == 0) return;
+        // Rows are opened before the update so it never has to lock a gap the insert needs
+        var existing = memberBalanceRepository.findExistingIds(memberIds);
+        memberIds.stream().filter(memberId -> !existing.contains(memberId)).forEach(this::openBalance);
+        memberBalanceRepository.addToBalances(memberIds, amount);
+    }
+
+    // Movements and stored balances are read in one repeatable read snapshot, so a movement
+    // committed between the two reads is not reported as drift. Drifted balances are then
+    // recomputed from the latest committed movements
+    @Override
+    public int reconcileBalances() {
+        var snapshot = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        var balances =
+                snapshot.execute(
+                        status ->
+                                new Balances(
+                                        movementRepository.findBalances().stream()
+                                                .collect(
+                                                        Collectors.toMap(
+                                                                MemberBalance::getMemberId,
+                                                                MemberBalance::getBalance)),
+                                        getBalances()));
+        var expected = balances.expected();
+        var stored = balances.stored();
+
+        var memberIds = new HashSet<>(expected.keySet());
+        memberIds.addAll(stored.keySet());
+        int drifted = 0;
+        for (long memberId : memberIds) {
+            double actual = expected.getOrDefault(memberId, 0.0);
+            double current = stored.getOrDefault(memberId, 0.0);
+            if (Math.abs(actual - current) <= BALANCE_TOLERANCE) continue;
+
+            log.warn("[BALANCES] Member " + memberId + " balance drifted: stored " + current
+                    + ", movements " + actual);
+            if (!stored.containsKey(memberId)) openBalance(memberId);
+            memberBalanceRepository.recompute(memberId);
+            drifted++;
+        }
+        return drifted;
     }
 
     @Override
+    @Transactional
     public MovementDto create(long memberId, MovementType type, double amount, String description)
             throws MemberNotFoundException {
         var member =
@@ -85,6 +170,7 @@ public class MovementServiceImpl implements MovementService {
                                 .memberId(memberId)
                                 .description(description)
                                 .build());
+        addToBalances(List.of(memberId), movementEntity.getAmount());
 
         return new MovementDto(
                 movementEntity.getId(),
@@ -96,6 +182,7 @@ public class MovementServiceImpl implements MovementService {
     }
 
     @Override
+    @Transactional
     public MovementDto update(long id, double amount, String description)
             throws MovementNotFoundException, MemberNotFoundException {
         var movement =
@@ -116,6 +203,7 @@ public class MovementServiceImpl implements MovementService {
                                 .description(description)
                                 .createdOn(movement.getCreatedOn())
                                 .build());
+        addToBalances(List.of(movement.getMemberId()), movementUpdated.getAmount() - movement.getAmount());
 
         return new MovementDto(
                 movementUpdated.getId(),
@@ -127,23 +215,31 @@ public class MovementServiceImpl implements MovementService {
     }
 
     @Override
+    @Transactional
     public void delete(long id) {
-        movementRepository.deleteById(id);
+        movementRepository.findById(id).ifPresent(movement -> {
+            movementRepository.delete(movement);
+            addToBalances(List.of(movement.getMemberId()), -movement.getAmount());
+        });
     }
 
     @Override
+    @Transactional
     public void addAnnualTeamPay() {
-        memberRepository.findAll().stream()
+        var memberIds = memberRepository.findAll().stream()
                 .filter(member -> !adminUser.equals(member.getName()))
-                .forEach(member -> movementRepository.save(
-                                MovementEntity.builder()
-                                        .type(MovementType.EXPENSE)
-                                        .amount(-70)
-                                        .memberId(member.getId())
-                                        .description("Cuota anual de la peña")
-                                        .build()
-                        )
-                );
+                .map(MemberEntity::getId)
+                .toList();
+        memberIds.forEach(memberId -> movementRepository.save(
+                        MovementEntity.builder()
+                                .type(MovementType.EXPENSE)
+                                .amount(-70)
+                                .memberId(memberId)
+                                .description("Cuota anual de la peña")
+                                .build()
+                )
+        );
+        addToBalances(memberIds, -70);
     }
 
     @Override
@@ -160,16 +256,26 @@ public class MovementServiceImpl implements MovementService {
         return new TotalBalanceDto(totalExpenses, totalIncomes);
     }
 
-    private MovementDto entityToDto(MovementEntity entity) {
-        var member = memberRepository.findById(entity.getMemberId());
-        String memberName =
-                member
-                        .map(memberEntity -> memberEntity.getName() + " " + memberEntity.getSurname())
-                        .orElse("Not found");
+    private void openBalance(long memberId) {
+        try {
+            memberBalanceRepository.open(memberId);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("[BALANCES] Balance of member " + memberId + " opened concurrently");
+        }
+    }
+
+    // Resolves the names of a whole page with one cache lookup instead of one per movement
+    private Map<Long, MatchPlayerDto> getPlayers(Collection<MovementEntity> movements) {
+        return memberCacheService.get(
+                movements.stream().map(MovementEntity::getMemberId).collect(Collectors.toSet()));
+    }
+
+    private MovementDto entityToDto(MovementEntity entity, Map<Long, MatchPlayerDto> players) {
+        var player = players.get(entity.getMemberId());
         return new MovementDto(
                 entity.getId(),
                 entity.getType(),
-                memberName,
+                player == null ? "Not found" : player.name(),
                 entity.getAmount(),
                 entity.getDescription(),
                 formatter.format(entity.getCreatedOn()));
@@ -182,4 +288,6 @@ public class MovementServiceImpl implements MovementService {
             return amount < 0 ? amount * -1 : amount;
         }
     }
+
+    private record Balances(Map<Long, Double> expected, Map<Long, Double> stored) {}
 }
@@ -0,0 +1,102 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.entities.OutboxEventEntity;
+import com.torresj.footballteammanagementapi.repositories.OutboxEventRepository;
+import com.torresj.footballteammanagementapi.services.MatchService;
+import com.torresj.footballteammanagementapi.services.OutboxService;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxServiceImpl implements OutboxService {
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final MatchService matchService;
+  private final TransactionTemplate transactionTemplate;
+
+  @Value("${outbox.batch-size:100}")
+  private final int batchSize;
+
+  @Value("${outbox.max-attempts:10}")
+  private final int maxAttempts;
+
+  @Value("${outbox.backoff:1000}")
+  private final long backoff;
+
+  @Override
+  public int processPending() {
+    int processed = 0;
+    long afterId = 0;
+    while (true) {
+      var ids =
+          outboxEventRepository.findPendingIds(
+              LocalDateTime.now(), maxAttempts, afterId, PageRequest.ofSize(batchSize));
+      if (ids.isEmpty()) return processed;
+
+      for (var id : ids) {
+        if (process(id)) processed++;
+      }
+      afterId = ids.get(ids.size() - 1);
+    }
+  }
+
+  // The effects and the processed mark commit together, and the event version makes a concurrent
+  // worker's copy fail, so each event is applied exactly once
+  private boolean process(long id) {
+    try {
+      return Boolean.TRUE.equals(
+          transactionTemplate.execute(
+              status ->
+                  outboxEventRepository
+                      .findById(id)
+                      .filter(event -> event.getProcessedAt() == null)
+                      .map(
+                          event -> {
+                            apply(event);
+                            event.setProcessedAt(LocalDateTime.now());
+                            return true;
+                          })
+                      .orElse(false)));
+    } catch (RuntimeException e) {
+      log.warn("[OUTBOX] Event " + id + " failed: " + e);
+      recordFailure(id, e);
+      return false;
+    }
+  }
+
+  private void apply(OutboxEventEntity event) {
+    switch (event.getType()) {
+      case MATCH_CLOSED -> {
+        var fines = matchService.applyClose(event.getAggregateId());
+        log.info("[OUTBOX] Match " + event.getAggregateId() + " closed with " + fines + " fines");
+      }
+    }
+  }
+
+  private void recordFailure(long id, RuntimeException error) {
+    try {
+      transactionTemplate.executeWithoutResult(
+          status ->
+              outboxEventRepository
+                  .findById(id)
+                  .filter(event -> event.getProcessedAt() == null)
+                  .ifPresent(
+                      event -> {
+                        event.failed(error.toString(), backoff);
+                        if (event.getAttempts() >= maxAttempts) {
+                          log.error(
+                              "[OUTBOX] Event " + id + " gave up after " + maxAttempts + " attempts");
+                        }
+                      }));
+    } catch (RuntimeException e) {
+      log.error("[OUTBOX] Could not record failure of event " + id + ": " + e);
+    }
+  }
+}
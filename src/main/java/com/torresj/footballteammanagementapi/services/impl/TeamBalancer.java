@@ -0,0 +1,90 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Splits players into two teams whose sizes differ by at most one, minimising the squared
+// difference in strength and, with a smaller weight, in captaincy experience. It runs restarts
+// of best-swap hill climbing from seeded random splits. Both the restarts and the swaps per restart
+// are fixed counts, never time, so the same seed always returns the same teams
+public final class TeamBalancer {
+
+  private static final double LEADERSHIP_WEIGHT = 4;
+  private static final double EPSILON = 1e-9;
+
+  private TeamBalancer() {}
+
+  public static boolean[] split(
+      double[] strength, double[] leadership, long seed, int restarts, int maxSwaps) {
+    int players = strength.length;
+    int sizeA = (players + 1) / 2;
+    var random = new SplittableRandom(seed);
+
+    var order = new int[players];
+    for (int i = 0; i < players; i++) order[i] = i;
+
+    var best = new boolean[players];
+    double bestCost = Double.MAX_VALUE;
+
+    for (int restart = 0; restart < restarts; restart++) {
+      shuffle(order, random);
+      var teamA = Arrays.copyOfRange(order, 0, sizeA);
+      var teamB = Arrays.copyOfRange(order, sizeA, players);
+      double strengthGap = sum(strength, teamA) - sum(strength, teamB);
+      double leadershipGap = sum(leadership, teamA) - sum(leadership, teamB);
+
+      for (int swap = 0; swap < maxSwaps; swap++) {
+        double current = cost(strengthGap, leadershipGap);
+        int swapA = -1;
+        int swapB = -1;
+        for (int i = 0; i < teamA.length; i++) {
+          for (int j = 0; j < teamB.length; j++) {
+            double candidate =
+                cost(
+                    strengthGap + 2 * (strength[teamB[j]] - strength[teamA[i]]),
+                    leadershipGap + 2 * (leadership[teamB[j]] - leadership[teamA[i]]));
+            if (candidate < current - EPSILON) {
+              current = candidate;
+              swapA = i;
+              swapB = j;
+            }
+          }
+        }
+        if (swapA < 0) break;
+
+        strengthGap += 2 * (strength[teamB[swapB]] - strength[teamA[swapA]]);
+        leadershipGap += 2 * (leadership[teamB[swapB]] - leadership[teamA[swapA]]);
+        int swapped = teamA[swapA];
+        teamA[swapA] = teamB[swapB];
+        teamB[swapB] = swapped;
+      }
+
+      double cost = cost(strengthGap, leadershipGap);
+      if (cost < bestCost - EPSILON) {
+        bestCost = cost;
+        Arrays.fill(best, false);
+        for (int player : teamA) best[player] = true;
+      }
+    }
+    return best;
+  }
+
+  private static double cost(double strengthGap, double leadershipGap) {
+    return strengthGap * strengthGap + LEADERSHIP_WEIGHT * leadershipGap * leadershipGap;
+  }
+
+  private static double sum(double[] values, int[] players) {
+    double total = 0;
+    for (int player : players) total += values[player];
+    return total;
+  }
+
+  private static void shuffle(int[] values, SplittableRandom random) {
+    for (int i = values.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swapped = values[i];
+      values[i] = values[j];
+      values[j] = swapped;
+    }
+  }
+}
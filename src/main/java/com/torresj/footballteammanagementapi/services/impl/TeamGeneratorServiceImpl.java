@@ -0,0 +1,113 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.GeneratedTeamsDto;
+import com.torresj.footballteammanagementapi.dtos.LineupRequestDto;
+import com.torresj.footballteammanagementapi.dtos.MatchPlayerDto;
+import com.torresj.footballteammanagementapi.dtos.TeamCandidateDto;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.exceptions.MatchNotFoundException;
+import com.torresj.footballteammanagementapi.exceptions.PlayerUnavailableException;
+import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.MemberRepository;
+import com.torresj.footballteammanagementapi.services.MatchService;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
+import com.torresj.footballteammanagementapi.services.TeamGeneratorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class TeamGeneratorServiceImpl implements TeamGeneratorService {
+
+  // A perfect attendance record is worth this many rating points
+  private static final double ATTENDANCE_WEIGHT = 2;
+
+  private final MatchRepository matchRepository;
+  private final MemberRepository memberRepository;
+  private final MemberCacheService memberCacheService;
+  private final MatchService matchService;
+
+  @Value("${matches.teams.restarts:32}")
+  private final int restarts;
+
+  @Value("${matches.teams.max-swaps:256}")
+  private final int maxSwaps;
+
+  @Override
+  public GeneratedTeamsDto generate(long matchId, Long seed, boolean apply)
+      throws MatchNotFoundException, PlayerUnavailableException {
+    var match =
+        matchRepository.findById(matchId).orElseThrow(() -> new MatchNotFoundException(matchId));
+    if (match.isClosed()) throw new MatchNotFoundException(matchId);
+
+    long actualSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+    var confirmed = match.getConfirmedPlayers();
+    var members =
+        confirmed.isEmpty()
+            ? List.<TeamCandidateDto>of()
+            : memberRepository.findTeamCandidates(confirmed, ParticipantStatus.CONFIRMED);
+    var guests =
+        Stream.concat(match.getTeamAGuests().stream(), match.getTeamBGuests().stream()).toList();
+
+    var strength = new double[members.size() + guests.size()];
+    var leadership = new double[strength.length];
+    double maxAttendance =
+        Math.max(1, members.stream().mapToLong(TeamCandidateDto::attendance).max().orElse(0));
+    double maxCaptaincies =
+        Math.max(1, members.stream().mapToInt(TeamCandidateDto::captaincies).max().orElse(0));
+    double memberStrength = 0;
+    for (int i = 0; i < members.size(); i++) {
+      var member = members.get(i);
+      strength[i] = member.rating() + ATTENDANCE_WEIGHT * member.attendance() / maxAttendance;
+      leadership[i] = member.captaincies() / maxCaptaincies;
+      memberStrength += strength[i];
+    }
+    // Guests have no history, so they count as an average member
+    double guestStrength = members.isEmpty() ? 0 : memberStrength / members.size();
+    for (int i = members.size(); i < strength.length; i++) strength[i] = guestStrength;
+
+    var inTeamA = TeamBalancer.split(strength, leadership, actualSeed, restarts, maxSwaps);
+
+    var teamAPlayers = new ArrayList<Long>();
+    var teamBPlayers = new ArrayList<Long>();
+    var teamAGuests = new ArrayList<String>();
+    var teamBGuests = new ArrayList<String>();
+    double teamAStrength = 0;
+    double teamBStrength = 0;
+    for (int i = 0; i < strength.length; i++) {
+      if (inTeamA[i]) teamAStrength += strength[i];
+      else teamBStrength += strength[i];
+      if (i < members.size()) {
+        (inTeamA[i] ? teamAPlayers : teamBPlayers).add(members.get(i).memberId());
+      } else {
+        (inTeamA[i] ? teamAGuests : teamBGuests).add(guests.get(i - members.size()));
+      }
+    }
+
+    if (apply) {
+      matchService.setLineup(
+          matchId,
+          new LineupRequestDto(teamAPlayers, teamBPlayers, teamAGuests, teamBGuests, null, null));
+    }
+
+    var players = memberCacheService.get(confirmed);
+    return new GeneratedTeamsDto(
+        actualSeed,
+        toPlayers(teamAPlayers, players),
+        toPlayers(teamBPlayers, players),
+        teamAGuests,
+        teamBGuests,
+        teamAStrength,
+        teamBStrength);
+  }
+
+  private List<MatchPlayerDto> toPlayers(List<Long> ids, Map<Long, MatchPlayerDto> players) {
+    return ids.stream().map(players::get).toList();
+  }
+}
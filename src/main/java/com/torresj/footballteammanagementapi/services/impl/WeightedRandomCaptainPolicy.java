@@ -0,0 +1,38 @@
+package com.torresj.footballteammanagementapi.services.impl;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.services.CaptainPolicy;
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+import org.springframework.stereotype.Component;
+
+// Anyone can be picked, with odds of 1 / (1 + captaincies)
+@Component
+public class WeightedRandomCaptainPolicy implements CaptainPolicy {
+
+  @Override
+  public String getName() {
+    return "weighted-random";
+  }
+
+  @Override
+  public Optional<CaptainCandidateDto> pick(
+      List<CaptainCandidateDto> candidates, RandomGenerator random) {
+    if (candidates.isEmpty()) return Optional.empty();
+
+    double total = 0;
+    for (var candidate : candidates) total += weight(candidate);
+
+    double target = random.nextDouble() * total;
+    for (var candidate : candidates) {
+      target -= weight(candidate);
+      if (target < 0) return Optional.of(candidate);
+    }
+    return Optional.of(candidates.get(candidates.size() - 1));
+  }
+
+  private double weight(CaptainCandidateDto candidate) {
+    return 1.0 / (1 + candidate.captaincies());
+  }
+}
@@ -0,0 +1,340 @@
+package com.torresj.footballteammanagementapi.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Roaring-style immutable set of member ids. Ids are split by their high 16 bits into containers
+// that keep the low 16 bits either as a sorted array (sparse) or as a 65536-bit bitmap (dense),
+// so a roster of a few dozen members encodes in a few dozen bytes and set operations work one
+// container at a time
+public final class RosterBitmap {
+
+  private static final int ARRAY_MAX_SIZE = 4096;
+  private static final int BITMAP_WORDS = 1024;
+  private static final byte ARRAY = 0;
+  private static final byte BITMAP = 1;
+  private static final RosterBitmap EMPTY = new RosterBitmap(new char[0], new Object[0], 0);
+
+  private final char[] keys;
+  // Each container is either a char[] with the sorted low bits or a long[] bitmap
+  private final Object[] containers;
+  private final int cardinality;
+
+  private RosterBitmap(char[] keys, Object[] containers, int size) {
+    this.keys = size == keys.length ? keys : Arrays.copyOf(keys, size);
+    this.containers = size == containers.length ? containers : Arrays.copyOf(containers, size);
+    int total = 0;
+    for (var container : this.containers) total += cardinality(container);
+    this.cardinality = total;
+  }
+
+  public static RosterBitmap empty() {
+    return EMPTY;
+  }
+
+  public static RosterBitmap of(Collection<Long> ids) {
+    if (ids.isEmpty()) return EMPTY;
+
+    var values = new int[ids.size()];
+    int n = 0;
+    for (long id : ids) {
+      if (id < 0 || id > Integer.MAX_VALUE)
+        throw new IllegalArgumentException("Member id out of range: " + id);
+      values[n++] = (int) id;
+    }
+    Arrays.sort(values);
+
+    var keys = new char[values.length];
+    var containers = new Object[values.length];
+    var low = new char[Math.min(values.length, 1 << 16)];
+    int size = 0;
+    int lowSize = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0 && values[i] == values[i - 1]) continue;
+      if (lowSize > 0 && high(values[i]) != keys[size]) {
+        containers[size++] = fromArray(low, lowSize);
+        lowSize = 0;
+      }
+      keys[size] = high(values[i]);
+      low[lowSize++] = (char) values[i];
+    }
+    containers[size++] = fromArray(low, lowSize);
+    return new RosterBitmap(keys, containers, size);
+  }
+
+  public static RosterBitmap decode(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) return EMPTY;
+
+    var buffer = ByteBuffer.wrap(bytes);
+    int size = buffer.getInt();
+    var keys = new char[size];
+    var containers = new Object[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = buffer.getChar();
+      byte type = buffer.get();
+      if (type == ARRAY) {
+        var values = new char[buffer.getChar()];
+        for (int j = 0; j < values.length; j++) values[j] = buffer.getChar();
+        containers[i] = values;
+      } else if (type == BITMAP) {
+        var words = new long[BITMAP_WORDS];
+        for (int j = 0; j < words.length; j++) words[j] = buffer.getLong();
+        containers[i] = words;
+      } else {
+        throw new IllegalArgumentException("Unknown roster container type " + type);
+      }
+    }
+    return new RosterBitmap(keys, containers, size);
+  }
+
+  public byte[] encode() {
+    int length = Integer.BYTES;
+    for (var container : containers) {
+      length += Character.BYTES + 1;
+      length +=
+          container instanceof char[] values
+              ? Character.BYTES * (1 + values.length)
+              : Long.BYTES * BITMAP_WORDS;
+    }
+
+    var buffer = ByteBuffer.allocate(length);
+    buffer.putInt(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      buffer.putChar(keys[i]);
+      if (containers[i] instanceof char[] values) {
+        buffer.put(ARRAY);
+        buffer.putChar((char) values.length);
+        for (char value : values) buffer.putChar(value);
+      } else {
+        buffer.put(BITMAP);
+        for (long word : (long[]) containers[i]) buffer.putLong(word);
+      }
+    }
+    return buffer.array();
+  }
+
+  public int cardinality() {
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return cardinality == 0;
+  }
+
+  public boolean contains(long id) {
+    if (id < 0 || id > Integer.MAX_VALUE) return false;
+    int index = Arrays.binarySearch(keys, high((int) id));
+    return index >= 0 && contains(containers[index], (char) id);
+  }
+
+  public RosterBitmap and(RosterBitmap other) {
+    int capacity = Math.min(keys.length, other.keys.length);
+    var resultKeys = new char[capacity];
+    var resultContainers = new Object[capacity];
+    int size = 0;
+    for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+      if (keys[i] < other.keys[j]) i++;
+      else if (keys[i] > other.keys[j]) j++;
+      else {
+        var container = and(containers[i], other.containers[j]);
+        if (container != null) {
+          resultKeys[size] = keys[i];
+          resultContainers[size++] = container;
+        }
+        i++;
+        j++;
+      }
+    }
+    return new RosterBitmap(resultKeys, resultContainers, size);
+  }
+
+  public RosterBitmap or(RosterBitmap other) {
+    int capacity = keys.length + other.keys.length;
+    var resultKeys = new char[capacity];
+    var resultContainers = new Object[capacity];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < keys.length || j < other.keys.length) {
+      if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+        resultKeys[size] = keys[i];
+        resultContainers[size++] = containers[i++];
+      } else if (i == keys.length || keys[i] > other.keys[j]) {
+        resultKeys[size] = other.keys[j];
+        resultContainers[size++] = other.containers[j++];
+      } else {
+        resultKeys[size] = keys[i];
+        resultContainers[size++] = or(containers[i++], other.containers[j++]);
+      }
+    }
+    return new RosterBitmap(resultKeys, resultContainers, size);
+  }
+
+  public RosterBitmap andNot(RosterBitmap other) {
+    var resultKeys = new char[keys.length];
+    var resultContainers = new Object[keys.length];
+    int size = 0;
+    for (int i = 0, j = 0; i < keys.length; i++) {
+      while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+      var container =
+          j < other.keys.length && other.keys[j] == keys[i]
+              ? andNot(containers[i], other.containers[j])
+              : containers[i];
+      if (container != null) {
+        resultKeys[size] = keys[i];
+        resultContainers[size++] = container;
+      }
+    }
+    return new RosterBitmap(resultKeys, resultContainers, size);
+  }
+
+  public long[] toArray() {
+    var ids = new long[cardinality];
+    int n = 0;
+    for (int i = 0; i < keys.length; i++) {
+      int high = keys[i] << 16;
+      if (containers[i] instanceof char[] values) {
+        for (char value : values) ids[n++] = high | value;
+      } else {
+        var words = (long[]) containers[i];
+        for (int w = 0; w < words.length; w++) {
+          for (long word = words[w]; word != 0; word &= word - 1) {
+            ids[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+          }
+        }
+      }
+    }
+    return ids;
+  }
+
+  public LongStream stream() {
+    return Arrays.stream(toArray());
+  }
+
+  public Set<Long> toSet() {
+    return stream().boxed().collect(Collectors.toSet());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof RosterBitmap other)) return false;
+    return Arrays.equals(keys, other.keys) && Arrays.deepEquals(containers, other.containers);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(keys) + Arrays.deepHashCode(containers);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+
+  private static char high(int id) {
+    return (char) (id >>> 16);
+  }
+
+  private static int cardinality(Object container) {
+    if (container instanceof char[] values) return values.length;
+    int total = 0;
+    for (long word : (long[]) container) total += Long.bitCount(word);
+    return total;
+  }
+
+  private static boolean contains(Object container, char value) {
+    if (container instanceof char[] values) return Arrays.binarySearch(values, value) >= 0;
+    return (((long[]) container)[value >>> 6] & (1L << value)) != 0;
+  }
+
+  // Containers are kept canonical (arrays up to ARRAY_MAX_SIZE values, bitmaps above) so equal
+  // sets always have equal encodings
+  private static Object fromArray(char[] values, int size) {
+    if (size <= ARRAY_MAX_SIZE) return Arrays.copyOf(values, size);
+    var words = new long[BITMAP_WORDS];
+    for (int i = 0; i < size; i++) words[values[i] >>> 6] |= 1L << values[i];
+    return words;
+  }
+
+  private static Object fromWords(long[] words) {
+    int size = cardinality(words);
+    if (size == 0) return null;
+    if (size > ARRAY_MAX_SIZE) return words;
+    var values = new char[size];
+    int n = 0;
+    for (int w = 0; w < words.length; w++) {
+      for (long word = words[w]; word != 0; word &= word - 1) {
+        values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+      }
+    }
+    return values;
+  }
+
+  private static long[] copyWords(Object container) {
+    if (container instanceof long[] words) return words.clone();
+    var words = new long[BITMAP_WORDS];
+    for (char value : (char[]) container) words[value >>> 6] |= 1L << value;
+    return words;
+  }
+
+  private static Object filter(char[] values, Object container, boolean keep) {
+    var result = new char[values.length];
+    int size = 0;
+    for (char value : values) {
+      if (contains(container, value) == keep) result[size++] = value;
+    }
+    return size == 0 ? null : Arrays.copyOf(result, size);
+  }
+
+  private static Object and(Object left, Object right) {
+    if (left instanceof char[] values) return filter(values, right, true);
+    if (right instanceof char[] values) return filter(values, left, true);
+    var words = copyWords(left);
+    var other = (long[]) right;
+    for (int w = 0; w < words.length; w++) words[w] &= other[w];
+    return fromWords(words);
+  }
+
+  private static Object or(Object left, Object right) {
+    if (left instanceof char[] a && right instanceof char[] b) {
+      var merged = new char[a.length + b.length];
+      int size = 0;
+      int i = 0;
+      int j = 0;
+      while (i < a.length || j < b.length) {
+        if (j == b.length || (i < a.length && a[i] < b[j])) merged[size++] = a[i++];
+        else if (i == a.length || a[i] > b[j]) merged[size++] = b[j++];
+        else {
+          merged[size++] = a[i++];
+          j++;
+        }
+      }
+      return fromArray(merged, size);
+    }
+    var words = copyWords(left);
+    if (right instanceof char[] values) {
+      for (char value : values) words[value >>> 6] |= 1L << value;
+    } else {
+      var other = (long[]) right;
+      for (int w = 0; w < words.length; w++) words[w] |= other[w];
+    }
+    return words;
+  }
+
+  private static Object andNot(Object left, Object right) {
+    if (left instanceof char[] values) return filter(values, right, false);
+    var words = copyWords(left);
+    if (right instanceof char[] values) {
+      for (char value : values) words[value >>> 6] &= ~(1L << value);
+    } else {
+      var other = (long[]) right;
+      for (int w = 0; w < words.length; w++) words[w] &= ~other[w];
+    }
+    return fromWords(words);
+  }
+}
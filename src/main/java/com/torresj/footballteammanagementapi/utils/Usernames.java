@@ -0,0 +1,21 @@
+package com.torresj.footballteammanagementapi.utils;
+
+import java.util.Locale;
+
+// Login key of a member, "name.surname" lower-cased, as stored in the unique username column
+public final class Usernames {
+
+  private Usernames() {}
+
+  public static String of(String name, String surname) {
+    return (name + "." + surname).toLowerCase(Locale.ROOT);
+  }
+
+  // Returns the stored form of a login, or null when it is not exactly "name.surname"
+  public static String normalize(String login) {
+    if (login == null) return null;
+    int dot = login.indexOf('.');
+    if (dot <= 0 || dot == login.length() - 1 || login.indexOf('.', dot + 1) >= 0) return null;
+    return login.toLowerCase(Locale.ROOT);
+  }
+}
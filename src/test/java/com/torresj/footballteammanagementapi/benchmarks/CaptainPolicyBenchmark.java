@@ -0,0 +1,74 @@
+package com.torresj.footballteammanagementapi.benchmarks;
+
+import com.torresj.footballteammanagementapi.dtos.CaptainCandidateDto;
+import com.torresj.footballteammanagementapi.enums.Team;
+import com.torresj.footballteammanagementapi.services.CaptainPolicy;
+import com.torresj.footballteammanagementapi.services.impl.LeastCaptainciesCaptainPolicy;
+import com.torresj.footballteammanagementapi.services.impl.LeastRecentCaptainPolicy;
+import com.torresj.footballteammanagementapi.services.impl.WeightedRandomCaptainPolicy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptainPolicyBenchmark {
+
+  @Param({"7", "14", "40"})
+  private int teamSize;
+
+  private List<CaptainCandidateDto> candidates;
+  private SplittableRandom random;
+
+  private final CaptainPolicy leastCaptaincies = new LeastCaptainciesCaptainPolicy();
+  private final CaptainPolicy leastRecent = new LeastRecentCaptainPolicy();
+  private final CaptainPolicy weightedRandom = new WeightedRandomCaptainPolicy();
+
+  @Setup
+  public void setup() {
+    random = new SplittableRandom(42);
+    var today = LocalDate.now();
+    candidates =
+        IntStream.range(0, teamSize)
+            .mapToObj(
+                i ->
+                    new CaptainCandidateDto(
+                        (long) i,
+                        Team.A,
+                        random.nextInt(10),
+                        i % 5 == 0 ? null : today.minusWeeks(random.nextInt(52))))
+            .toList();
+  }
+
+  @Benchmark
+  public Optional<CaptainCandidateDto> leastCaptaincies() {
+    return leastCaptaincies.pick(candidates, random);
+  }
+
+  @Benchmark
+  public Optional<CaptainCandidateDto> leastRecent() {
+    return leastRecent.pick(candidates, random);
+  }
+
+  @Benchmark
+  public Optional<CaptainCandidateDto> weightedRandom() {
+    return weightedRandom.pick(candidates, random);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(CaptainPolicyBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,143 @@
+package com.torresj.footballteammanagementapi.benchmarks;
+
+import com.torresj.footballteammanagementapi.entities.MatchEntity;
+import com.torresj.footballteammanagementapi.entities.MatchParticipantEntity;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.utils.RosterBitmap;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ten seasons of weekly matches for a club whose squad slowly turns over. An in-memory comparison
+// only: it walks participant entities already loaded on the heap against decoding the archived
+// bitmaps, so no repository, JDBC or database time is measured. The row size it prints is a
+// hand-computed estimate of the column payload, not a measured table size
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterBitmapBenchmark {
+
+  private static final int SEASONS = 10;
+  private static final int MATCHES_PER_SEASON = 40;
+  // Estimated payload of one participant row, without storage engine overhead: id, match_id and
+  // member_id bigints, status, team and captain integers plus an empty guest column
+  private static final int PARTICIPANT_ROW_BYTES = 3 * Long.BYTES + 3 * Integer.BYTES + 1;
+
+  @Param({"40", "200"})
+  private int squadSize;
+
+  private List<MatchEntity> rowMatches;
+  private List<byte[]> confirmedRosters;
+  private List<byte[]> finedRosters;
+
+  @Setup
+  public void setup() {
+    var random = new SplittableRandom(42);
+    rowMatches = new ArrayList<>();
+    confirmedRosters = new ArrayList<>();
+    finedRosters = new ArrayList<>();
+    long rows = 0;
+    long bitmapBytes = 0;
+
+    for (int i = 0; i < SEASONS * MATCHES_PER_SEASON; i++) {
+      var match = MatchEntity.builder().matchDay(LocalDate.now().minusWeeks(i)).build();
+      // A tenth of the squad is replaced every season
+      long firstMember = (long) (i / MATCHES_PER_SEASON) * squadSize / 10 + 1;
+      var fined = new HashSet<Long>();
+      for (long member = firstMember; member < firstMember + squadSize; member++) {
+        int answer = random.nextInt(10);
+        var status =
+            answer < 6
+                ? ParticipantStatus.CONFIRMED
+                : answer < 8 ? ParticipantStatus.NOT_AVAILABLE : ParticipantStatus.UNCONFIRMED;
+        if (status != ParticipantStatus.CONFIRMED && answer != 9) fined.add(member);
+        match
+            .getParticipants()
+            .add(
+                MatchParticipantEntity.builder()
+                    .match(match)
+                    .memberId(member)
+                    .status(status)
+                    .build());
+      }
+      rows += match.getParticipants().size();
+
+      var confirmed = RosterBitmap.of(match.getConfirmedPlayers()).encode();
+      var notAvailable = RosterBitmap.of(match.getNotAvailablePlayers()).encode();
+      var unConfirmed = RosterBitmap.of(match.getUnConfirmedPlayers()).encode();
+      var finedRoster = RosterBitmap.of(fined).encode();
+      bitmapBytes += confirmed.length + notAvailable.length + unConfirmed.length + finedRoster.length;
+      rowMatches.add(match);
+      confirmedRosters.add(confirmed);
+      finedRosters.add(finedRoster);
+    }
+
+    System.out.printf(
+        "%nSquad %d: %d participant rows hold an estimated ~%d bytes, bitmaps take %d bytes%n",
+        squadSize, rows, rows * PARTICIPANT_ROW_BYTES, bitmapBytes);
+  }
+
+  @Benchmark
+  public long readRowRosters() {
+    long total = 0;
+    for (var match : rowMatches) total += match.getConfirmedPlayers().size();
+    return total;
+  }
+
+  @Benchmark
+  public long readBitmapRosters() {
+    long total = 0;
+    for (var roster : confirmedRosters) total += RosterBitmap.decode(roster).cardinality();
+    return total;
+  }
+
+  @Benchmark
+  public long overlapRows() {
+    long total = 0;
+    for (int i = 1; i < rowMatches.size(); i++) {
+      var attended = new HashSet<>(rowMatches.get(i).getConfirmedPlayers());
+      attended.retainAll(rowMatches.get(i - 1).getConfirmedPlayers());
+      total += attended.size();
+    }
+    return total;
+  }
+
+  @Benchmark
+  public long overlapBitmaps() {
+    long total = 0;
+    var previous = RosterBitmap.decode(confirmedRosters.get(0));
+    for (int i = 1; i < confirmedRosters.size(); i++) {
+      var current = RosterBitmap.decode(confirmedRosters.get(i));
+      total += current.and(previous).cardinality();
+      previous = current;
+    }
+    return total;
+  }
+
+  @Benchmark
+  public long attendedAndFinedBitmaps() {
+    var attended = RosterBitmap.empty();
+    var fined = RosterBitmap.empty();
+    for (int i = 0; i < confirmedRosters.size(); i++) {
+      attended = attended.or(RosterBitmap.decode(confirmedRosters.get(i)));
+      fined = fined.or(RosterBitmap.decode(finedRosters.get(i)));
+    }
+    return attended.and(fined).cardinality();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(RosterBitmapBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -0,0 +1,46 @@
+package com.torresj.footballteammanagementapi.benchmarks;
+
+import com.torresj.footballteammanagementapi.utils.Usernames;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Cost of turning the login of every authenticated request into a lookup key: the former
+// three regex splits against the single scan of Usernames.normalize
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsernameResolutionBenchmark {
+
+  @Param({"Jaime.Torres", "JoseAntonio.FernandezDeLaTorre", "invalid"})
+  private String login;
+
+  @Benchmark
+  public void split(Blackhole blackhole) {
+    if (login.split("\\.").length != 2) {
+      blackhole.consume(login);
+      return;
+    }
+    blackhole.consume(login.split("\\.")[0]);
+    blackhole.consume(login.split("\\.")[1]);
+  }
+
+  @Benchmark
+  public String normalize() {
+    return Usernames.normalize(login);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(UsernameResolutionBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
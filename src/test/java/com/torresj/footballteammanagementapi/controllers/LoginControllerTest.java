@@ -96,6 +96,68 @@ public class LoginControllerTest {
 
         Assertions.assertEquals("loginNotAdminTest.test", jwtService.validateJWS(response.jwt()));
 
+        memberRepository.deleteById(member.getId());
+    }
+
+    @Test
+    @DisplayName("Login resolves the username ignoring case")
+    void loginIgnoringCase() throws Exception {
+        var member = memberRepository.save(
+                MemberEntity.builder()
+                        .name("LoginCaseTest")
+                        .surname("Test")
+                        .phone("")
+                        .role(Role.USER)
+                        .password(encoder.encode("test"))
+                        .build());
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.post("/v1/login")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                new RequestLoginDto(
+                                                        "logincasetest.TEST", "test", Instant.now().getEpochSecond()))))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals("logincasetest.test", memberRepository.findById(member.getId()).get().getUsername());
+
+        memberRepository.delete(member);
+    }
+
+    @Test
+    @DisplayName("Login keeps the rest of the member untouched")
+    void loginKeepsMember() throws Exception {
+        var member = memberRepository.save(
+                MemberEntity.builder()
+                        .name("loginKeepsMemberTest")
+                        .surname("test")
+                        .alias("alias")
+                        .phone("")
+                        .role(Role.USER)
+                        .nCaptaincies(3)
+                        .password(encoder.encode("test"))
+                        .build());
+        var nonce = Instant.now().getEpochSecond();
+        mockMvc
+                .perform(
+                        MockMvcRequestBuilders.post("/v1/login")
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(
+                                        objectMapper.writeValueAsString(
+                                                new RequestLoginDto(
+                                                        "loginKeepsMemberTest.test", "test", nonce))))
+                .andExpect(status().isOk());
+
+        var memberFromDB = memberRepository.findById(member.getId()).get();
+
+        Assertions.assertEquals(nonce, memberFromDB.getNonce());
+        Assertions.assertEquals("alias", memberFromDB.getAlias());
+        Assertions.assertEquals(3, memberFromDB.getNCaptaincies());
+        Assertions.assertEquals(member.getVersion(), memberFromDB.getVersion());
+
         memberRepository.delete(member);
     }
 
@@ -1,34 +1,48 @@
 package com.torresj.footballteammanagementapi.controllers;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.torresj.footballteammanagementapi.dtos.*;
 import com.torresj.footballteammanagementapi.entities.MatchEntity;
+import com.torresj.footballteammanagementapi.entities.MatchParticipantEntity;
 import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
 import com.torresj.footballteammanagementapi.enums.PlayerMatchStatus;
 import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.enums.Team;
+import com.torresj.footballteammanagementapi.events.MemberChangedEvent;
 import com.torresj.footballteammanagementapi.exceptions.MatchNotFoundException;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
 import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.MatchViewRepository;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
 import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.services.MatchService;
+import com.torresj.footballteammanagementapi.services.MemberCacheService;
+import com.torresj.footballteammanagementapi.services.OutboxService;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 @ActiveProfiles("test")
@@ -44,8 +58,16 @@ public class MatchControllerTest {
 
   @Autowired private MatchRepository matchRepository;
 
+  @Autowired private MatchViewRepository matchViewRepository;
+
   @Autowired private MovementRepository movementRepository;
 
+  @Autowired private MatchService matchService;
+  @Autowired private MemberCacheService memberCacheService;
+  @Autowired private ApplicationEventPublisher eventPublisher;
+
+  @Autowired private OutboxService outboxService;
+
   @Autowired private PasswordEncoder passwordEncoder;
 
   @Value("${admin.user}")
@@ -85,8 +107,8 @@ public class MatchControllerTest {
     var entity =
         memberRepository
             .findByNameAndSurname(name, name)
-            .orElse(
-                memberRepository.save(
+            .orElseGet(
+                () -> memberRepository.save(
                     MemberEntity.builder()
                         .role(Role.USER)
                         .phone("")
@@ -113,56 +135,106 @@ public class MatchControllerTest {
     token = response.jwt();
   }
 
+  private MatchEntity buildMatch(
+      LocalDate matchDay,
+      Collection<Long> confirmedPlayers,
+      Collection<Long> notAvailablePlayers,
+      Collection<Long> unConfirmedPlayers,
+      Collection<Long> teamAPlayers,
+      Collection<Long> teamBPlayers,
+      Collection<String> teamAGuests,
+      Collection<String> teamBGuests,
+      Long captainTeamA,
+      Long captainTeamB,
+      boolean closed) {
+    var match = MatchEntity.builder().matchDay(matchDay).closed(closed).build();
+    var participants = new LinkedHashMap<Long, MatchParticipantEntity>();
+    Function<Long, MatchParticipantEntity> participant =
+        memberId ->
+            participants.computeIfAbsent(
+                memberId,
+                id ->
+                    MatchParticipantEntity.builder()
+                        .match(match)
+                        .memberId(id)
+                        .status(ParticipantStatus.CONFIRMED)
+                        .build());
+    confirmedPlayers.forEach(id -> participant.apply(id).setStatus(ParticipantStatus.CONFIRMED));
+    notAvailablePlayers.forEach(
+        id -> participant.apply(id).setStatus(ParticipantStatus.NOT_AVAILABLE));
+    unConfirmedPlayers.forEach(
+        id -> participant.apply(id).setStatus(ParticipantStatus.UNCONFIRMED));
+    teamAPlayers.forEach(id -> participant.apply(id).setTeam(Team.A));
+    teamBPlayers.forEach(id -> participant.apply(id).setTeam(Team.B));
+    if (captainTeamA != null) participant.apply(captainTeamA).setCaptain(Team.A);
+    if (captainTeamB != null) participant.apply(captainTeamB).setCaptain(Team.B);
+    match.getParticipants().addAll(participants.values());
+    teamAGuests.forEach(
+        guest -> match.getParticipants().add(buildGuest(match, guest, Team.A)));
+    teamBGuests.forEach(
+        guest -> match.getParticipants().add(buildGuest(match, guest, Team.B)));
+    return match;
+  }
+
+  private MatchParticipantEntity buildGuest(MatchEntity match, String guest, Team team) {
+    return MatchParticipantEntity.builder()
+        .match(match)
+        .guest(guest)
+        .status(ParticipantStatus.CONFIRMED)
+        .team(team)
+        .build();
+  }
+
   @Test
   @DisplayName("Get all matches")
   void getAllMatches() throws Exception {
     matchRepository.saveAll(
         List.of(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(2))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(true)
-                .build(),
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(1))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(true)
-                .build(),
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(10))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build()));
+            buildMatch(
+                LocalDate.now().minusDays(2),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                true),
+            buildMatch(
+                LocalDate.now().minusDays(1),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                true),
+            buildMatch(
+                LocalDate.now().minusDays(10),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false)));
 
     if (token == null) loginWithUser("MatchUser1");
 
@@ -178,26 +250,212 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
   }
 
+  @Test
+  @DisplayName("Get all matches paged by cursor")
+  void getAllMatchesPaged() throws Exception {
+    var matches =
+        matchRepository.saveAll(
+            List.of(
+                buildMatch(
+                    LocalDate.now().minusDays(21),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    true),
+                buildMatch(
+                    LocalDate.now().minusDays(14),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    true),
+                buildMatch(
+                    LocalDate.now().minusDays(7),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    true)));
+
+    if (token == null) loginWithUser("MatchUser18");
+
+    var firstPage =
+        mockMvc
+            .perform(
+                get("/v1/matches")
+                    .param("elements", "2")
+                    .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+    List<MatchDto> first =
+        objectMapper.readValue(
+            firstPage.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+    Assertions.assertEquals(2, first.size());
+    Assertions.assertEquals(matches.get(2).getId(), first.get(0).id());
+    Assertions.assertEquals(matches.get(1).getId(), first.get(1).id());
+
+    var secondPage =
+        mockMvc
+            .perform(
+                get("/v1/matches")
+                    .param("elements", "2")
+                    .param("afterMatchDay", first.get(1).matchDay())
+                    .param("afterId", String.valueOf(first.get(1).id()))
+                    .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+    List<MatchDto> second =
+        objectMapper.readValue(
+            secondPage.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+    Assertions.assertEquals(1, second.size());
+    Assertions.assertEquals(matches.get(0).getId(), second.get(0).id());
+    matchRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName("Get matches with an invalid page size")
+  void getAllMatchesInvalidPageSize() throws Exception {
+    if (token == null) loginWithUser("MatchUser19");
+
+    for (var elements : List.of("0", "-1", "101")) {
+      mockMvc
+          .perform(
+              get("/v1/matches")
+                  .param("elements", elements)
+                  .header("Authorization", "Bearer " + token))
+          .andExpect(status().isBadRequest());
+      mockMvc
+          .perform(
+              get("/v1/matches/summary")
+                  .param("elements", elements)
+                  .header("Authorization", "Bearer " + token))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  @Test
+  @DisplayName("Get matches with half a cursor")
+  void getAllMatchesHalfCursor() throws Exception {
+    if (token == null) loginWithUser("MatchUser19");
+
+    for (var path : List.of("/v1/matches", "/v1/matches/summary")) {
+      mockMvc
+          .perform(
+              get(path)
+                  .param("afterMatchDay", LocalDate.now().toString())
+                  .header("Authorization", "Bearer " + token))
+          .andExpect(status().isBadRequest());
+      mockMvc
+          .perform(get(path).param("afterId", "1").header("Authorization", "Bearer " + token))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
+  @Test
+  @DisplayName("Get match summaries")
+  void getMatchSummaries() throws Exception {
+    var members =
+        memberRepository.saveAll(
+            List.of(
+                MemberEntity.builder()
+                    .role(Role.USER)
+                    .phone("")
+                    .password("test")
+                    .name("summary")
+                    .surname("test1")
+                    .build(),
+                MemberEntity.builder()
+                    .role(Role.USER)
+                    .phone("")
+                    .password("test")
+                    .name("summary")
+                    .surname("test2")
+                    .build(),
+                MemberEntity.builder()
+                    .role(Role.USER)
+                    .phone("")
+                    .password("test")
+                    .name("summary")
+                    .surname("test3")
+                    .build()));
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().minusDays(7),
+                Set.of(members.get(0).getId(), members.get(1).getId()),
+                Set.of(members.get(2).getId()),
+                new HashSet<>(),
+                List.of(members.get(0).getId()),
+                List.of(members.get(1).getId()),
+                List.of("guest"),
+                new ArrayList<>(),
+                members.get(0).getId(),
+                members.get(1).getId(),
+                true));
+
+    if (token == null) loginWithUser("MatchUser1");
+
+    var result =
+        mockMvc
+            .perform(get("/v1/matches/summary").header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk());
+
+    var content = result.andReturn().getResponse().getContentAsString();
+    List<MatchSummaryDto> summaries = objectMapper.readValue(content, new TypeReference<>() {});
+
+    Assertions.assertEquals(1, summaries.size());
+    var summary = summaries.get(0);
+    Assertions.assertEquals(match.getId(), summary.id());
+    Assertions.assertEquals(2, summary.nConfirmedPlayers());
+    Assertions.assertEquals(1, summary.nNotAvailablePlayers());
+    Assertions.assertEquals(1, summary.nTeamAPlayers());
+    Assertions.assertEquals(1, summary.nTeamBPlayers());
+    Assertions.assertEquals(1, summary.nTeamAGuests());
+    Assertions.assertEquals(0, summary.nTeamBGuests());
+    Assertions.assertEquals(members.get(0).getId(), summary.captainTeamA().id());
+    Assertions.assertEquals(members.get(1).getId(), summary.captainTeamB().id());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteAll(members);
+  }
+
   @Test
   @DisplayName("Get match by ID")
   void getMatchById() throws Exception {
     var matchEntity =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now())
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now(),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     if (token == null) loginWithUser("MatchUser2");
 
@@ -209,6 +467,189 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
   }
 
+  @Test
+  @DisplayName("Get match by ID not modified")
+  void getMatchByIdNotModified() throws Exception {
+    var matchEntity =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    if (token == null) loginWithUser("MatchUser2");
+
+    var eTag =
+        mockMvc
+            .perform(
+                get("/v1/matches/" + matchEntity.getId())
+                    .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    Assertions.assertNotNull(eTag);
+
+    mockMvc
+        .perform(
+            get("/v1/matches/" + matchEntity.getId())
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    matchRepository.deleteAll();
+  }
+
+  @Test
+  @DisplayName("Get match ETag follows only the members it shows")
+  void getMatchETagFollowsShownMembers() throws Exception {
+    var shown =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("eTagShown")
+                .surname("test")
+                .build());
+    var other =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("eTagOther")
+                .surname("test")
+                .build());
+    var matchEntity =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().minusDays(7),
+                Set.of(shown.getId()),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                true));
+
+    if (token == null) loginWithUser("MatchUser2");
+
+    var eTag =
+        mockMvc
+            .perform(
+                get("/v1/matches/" + matchEntity.getId())
+                    .header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    memberRepository.updateAlias(other.getId(), "other");
+    memberCacheService.evict(other.getId());
+    eventPublisher.publishEvent(new MemberChangedEvent(other.getId()));
+
+    mockMvc
+        .perform(
+            get("/v1/matches/" + matchEntity.getId())
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    // The ETag belongs to the served view, so it only moves once the view is re-rendered
+    memberRepository.updateAlias(shown.getId(), "shown");
+
+    mockMvc
+        .perform(
+            get("/v1/matches/" + matchEntity.getId())
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    memberCacheService.evict(shown.getId());
+    eventPublisher.publishEvent(new MemberChangedEvent(shown.getId()));
+
+    mockMvc
+        .perform(
+            get("/v1/matches/" + matchEntity.getId())
+                .header("Authorization", "Bearer " + token)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isOk());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteAllById(List.of(shown.getId(), other.getId()));
+  }
+
+  @Test
+  @DisplayName("Get match by ID served from the read model")
+  void getMatchByIdFromReadModel() throws Exception {
+    var member =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("readModel")
+                .surname("test")
+                .build());
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    matchService.addGuestToTeamA(match.getId(), "readModelGuest");
+
+    var view = matchViewRepository.findById(match.getId());
+    Assertions.assertTrue(view.isPresent());
+    Assertions.assertEquals(
+        matchRepository.findVersionById(match.getId()).get(), view.get().getMatchVersion());
+
+    if (token == null) loginWithUser("MatchUser2");
+
+    var content =
+        mockMvc
+            .perform(
+                get("/v1/matches/" + match.getId()).header("Authorization", "Bearer " + token))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    var dto = objectMapper.readValue(content, MatchDto.class);
+    Assertions.assertEquals(List.of("readModelGuest"), dto.teamAGuests());
+    Assertions.assertTrue(
+        dto.unConfirmedPlayers().stream().anyMatch(player -> player.id() == member.getId()));
+
+    matchViewRepository.deleteById(match.getId());
+    Assertions.assertTrue(matchService.rebuildViews() >= 1);
+    Assertions.assertTrue(matchViewRepository.existsById(match.getId()));
+
+    matchRepository.deleteAll();
+    matchViewRepository.deleteAll();
+    memberRepository.delete(member);
+  }
+
   @Test
   @DisplayName("Get match by ID that doesn't exist")
   void getMatchByIdNotExist() throws Exception {
@@ -226,36 +667,38 @@ public class MatchControllerTest {
     var matches =
         matchRepository.saveAll(
             List.of(
-                MatchEntity.builder()
-                    .matchDay(LocalDate.now())
-                    .confirmedPlayers(new HashSet<>())
-                    .notAvailablePlayers(new HashSet<>())
-                    .unConfirmedPlayers(
-                        memberRepository.findAll().stream()
-                            .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                            .map(MemberEntity::getId)
-                            .collect(Collectors.toSet()))
-                    .teamAPlayers(new ArrayList<>())
-                    .teamBPlayers(new ArrayList<>())
-                    .teamAGuests(new ArrayList<>())
-                    .teamBGuests(new ArrayList<>())
-                    .closed(false)
-                    .build(),
-                MatchEntity.builder()
-                    .matchDay(LocalDate.now().minusDays(7))
-                    .confirmedPlayers(new HashSet<>())
-                    .notAvailablePlayers(new HashSet<>())
-                    .unConfirmedPlayers(
-                        memberRepository.findAll().stream()
-                            .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                            .map(MemberEntity::getId)
-                            .collect(Collectors.toSet()))
-                    .teamAPlayers(new ArrayList<>())
-                    .teamBPlayers(new ArrayList<>())
-                    .teamAGuests(new ArrayList<>())
-                    .teamBGuests(new ArrayList<>())
-                    .closed(false)
-                    .build()));
+                buildMatch(
+                    LocalDate.now(),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    memberRepository.findAll().stream()
+                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                        .map(MemberEntity::getId)
+                        .collect(Collectors.toSet()),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    false),
+                buildMatch(
+                    LocalDate.now().minusDays(7),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    memberRepository.findAll().stream()
+                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                        .map(MemberEntity::getId)
+                        .collect(Collectors.toSet()),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    false)));
+
+    matchService.refreshNext();
 
     if (token == null) loginWithUser("MatchUser4");
 
@@ -277,36 +720,38 @@ public class MatchControllerTest {
   void getNextMatchNotCreatedYet() throws Exception {
     matchRepository.saveAll(
         List.of(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build(),
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(14))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build()));
+            buildMatch(
+                LocalDate.now().minusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false),
+            buildMatch(
+                LocalDate.now().minusDays(14),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false)));
+
+    matchService.refreshNext();
 
     if (token == null) loginWithUser("MatchUser5");
 
@@ -317,6 +762,74 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
   }
 
+  @Test
+  @DisplayName("Subscribe to roster events")
+  void subscribeToRosterEvents() throws Exception {
+    if (token == null) loginWithUser("MatchUser4");
+
+    mockMvc
+        .perform(
+            get("/v1/matches/events")
+                .header("Authorization", "Bearer " + token)
+                .accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(status().isOk())
+        .andExpect(request().asyncStarted());
+  }
+
+  @Test
+  @DisplayName("Receive a roster event")
+  void receiveRosterEvent() throws Exception {
+    if (token == null) loginWithUser("MatchUser4");
+    if (adminToken == null) loginWithAdmin();
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    var stream =
+        mockMvc
+            .perform(
+                get("/v1/matches/events")
+                    .header("Authorization", "Bearer " + token)
+                    .accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getResponse();
+
+    mockMvc
+        .perform(
+            post("/v1/matches/" + match.getId() + "/guests/teama")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new GuestRequestDto("streamGuest"))))
+        .andExpect(status().isOk());
+
+    var deadline = System.currentTimeMillis() + 5000;
+    while (!stream.getContentAsString().contains("streamGuest")
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+
+    var content = stream.getContentAsString();
+    Assertions.assertTrue(content.contains("event:roster"));
+    Assertions.assertTrue(content.contains("GUEST_ADDED"));
+    Assertions.assertTrue(content.contains("streamGuest"));
+
+    matchRepository.deleteAll();
+  }
+
   @Test
   @DisplayName("Create match")
   void createMatch() throws Exception {
@@ -338,25 +851,79 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
   }
 
+  @Test
+  @DisplayName("Create match derives unconfirmed players")
+  void createMatchDerivesUnconfirmedPlayers() throws Exception {
+    var member =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("test")
+                .surname("unconfirmed")
+                .build());
+
+    if (adminToken == null) loginWithAdmin();
+
+    mockMvc
+        .perform(
+            post("/v1/matches")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    objectMapper.writeValueAsString(
+                        new CreateMatchDto(LocalDate.now().plusDays(1)))))
+        .andExpect(status().isCreated());
+
+    var matchId = matchRepository.findByMatchDay(LocalDate.now().plusDays(1)).get().getId();
+    var matchFromDB = matchRepository.findById(matchId).get();
+    Assertions.assertTrue(matchFromDB.getParticipants().isEmpty());
+
+    var content =
+        mockMvc
+            .perform(
+                get("/v1/matches/" + matchFromDB.getId())
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    var match = objectMapper.readValue(content, MatchDto.class);
+
+    var unConfirmed =
+        match.unConfirmedPlayers().stream().map(MatchPlayerDto::id).collect(Collectors.toSet());
+    Assertions.assertTrue(unConfirmed.contains(member.getId()));
+    Assertions.assertEquals(
+        memberRepository.findAll().stream()
+            .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
+            .count(),
+        unConfirmed.size());
+
+    matchRepository.deleteAll();
+    memberRepository.delete(member);
+  }
+
   @Test
   @DisplayName("Create match with an existing match already created")
   void createMatchAlreadyCreated() throws Exception {
     matchRepository.save(
-        MatchEntity.builder()
-            .matchDay(LocalDate.now())
-            .confirmedPlayers(new HashSet<>())
-            .notAvailablePlayers(new HashSet<>())
-            .unConfirmedPlayers(
-                memberRepository.findAll().stream()
-                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                    .map(MemberEntity::getId)
-                    .collect(Collectors.toSet()))
-            .teamAPlayers(new ArrayList<>())
-            .teamBPlayers(new ArrayList<>())
-            .teamAGuests(new ArrayList<>())
-            .teamBGuests(new ArrayList<>())
-            .closed(false)
-            .build());
+        buildMatch(
+            LocalDate.now(),
+            new HashSet<>(),
+            new HashSet<>(),
+            memberRepository.findAll().stream()
+                .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                .map(MemberEntity::getId)
+                .collect(Collectors.toSet()),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            null,
+            null,
+            false));
 
     var match = new CreateMatchDto(LocalDate.now().plusDays(1));
 
@@ -431,23 +998,21 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .captainTeamA(null)
-                .captainTeamB(null)
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().minusDays(7),
+                new HashSet<>(),
+                players,
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     if (adminToken == null) loginWithAdmin();
 
@@ -457,12 +1022,24 @@ public class MatchControllerTest {
                 .header("Authorization", "Bearer " + adminToken))
         .andExpect(status().isOk());
 
+    // Fines are applied by the outbox worker, not by the request
+    Assertions.assertTrue(
+        movementRepository
+            .findByMemberId(members.get(0).getId(), Sort.by(Sort.Direction.DESC, "createdOn"))
+            .isEmpty());
+    Assertions.assertEquals(1, outboxService.processPending());
+    Assertions.assertEquals(0, outboxService.processPending());
+
     var matchClosed =
         matchRepository
             .findById(match.getId())
             .orElseThrow(() -> new MatchNotFoundException(match.getId()));
 
     Assertions.assertTrue(matchClosed.isClosed());
+    Assertions.assertEquals(players, matchClosed.getNotAvailableRoster().toSet());
+    Assertions.assertTrue(matchClosed.getFinedRoster().contains(members.get(0).getId()));
+    Assertions.assertTrue(matchClosed.getFinedRoster().contains(members.get(1).getId()));
+    Assertions.assertFalse(matchClosed.getFinedRoster().contains(members.get(2).getId()));
 
     Assertions.assertFalse(
         movementRepository
@@ -495,7 +1072,7 @@ public class MatchControllerTest {
                     .role(Role.USER)
                     .phone("")
                     .password("test")
-                    .name("test")
+                    .name("captains")
                     .surname("test1")
                     .injured(false)
                     .build(),
@@ -503,7 +1080,7 @@ public class MatchControllerTest {
                     .role(Role.USER)
                     .phone("")
                     .password("test")
-                    .name("test")
+                    .name("captains")
                     .surname("test2")
                     .injured(false)
                     .build(),
@@ -511,7 +1088,7 @@ public class MatchControllerTest {
                     .role(Role.USER)
                     .phone("")
                     .password("test")
-                    .name("test")
+                    .name("captains")
                     .surname("test3")
                     .injured(true)
                     .build()));
@@ -522,23 +1099,21 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().minusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .captainTeamA(members.get(0).getId())
-                .captainTeamB(members.get(1).getId())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().minusDays(7),
+                new HashSet<>(),
+                players,
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                members.get(0).getId(),
+                members.get(1).getId(),
+                false));
 
     if (adminToken == null) loginWithAdmin();
 
@@ -547,6 +1122,7 @@ public class MatchControllerTest {
             post("/v1/matches/" + match.getId() + "/close")
                 .header("Authorization", "Bearer " + adminToken))
         .andExpect(status().isOk());
+    outboxService.processPending();
 
     var matchClosed =
         matchRepository
@@ -574,7 +1150,71 @@ public class MatchControllerTest {
 
     movementRepository.deleteAll();
     matchRepository.deleteAll();
-    memberRepository.deleteAll(members);
+    memberRepository.deleteAllById(members.stream().map(MemberEntity::getId).toList());
+  }
+
+  @Test
+  @DisplayName("Close past matches")
+  void closePastMatches() {
+    var member =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("test")
+                .surname("closePast")
+                .injured(false)
+                .build());
+
+    var matches =
+        matchRepository.saveAll(
+            List.of(
+                buildMatch(
+                    LocalDate.now().minusDays(14),
+                    new HashSet<>(),
+                    List.of(member.getId()),
+                    new HashSet<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    false),
+                buildMatch(
+                    LocalDate.now().minusDays(7),
+                    new HashSet<>(),
+                    new HashSet<>(),
+                    List.of(member.getId()),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    new ArrayList<>(),
+                    null,
+                    null,
+                    false)));
+
+    // Members without an answer are unconfirmed in both matches
+    var fined =
+        memberRepository.findAll().stream()
+            .filter(m -> !adminUser.equals(m.getName()) && !m.isInjured())
+            .count();
+
+    var report = matchService.closePastMatches();
+
+    Assertions.assertEquals(2, report.matchesClosed());
+    Assertions.assertEquals(2 * fined, report.finesCreated());
+    Assertions.assertTrue(report.failures().isEmpty());
+    Assertions.assertEquals(2, outboxService.processPending());
+    matches.forEach(
+        match -> Assertions.assertTrue(matchRepository.findById(match.getId()).get().isClosed()));
+    Assertions.assertEquals(
+        2, movementRepository.findByMemberId(member.getId(), Sort.by("createdOn")).size());
+
+    movementRepository.deleteAll();
+    matchRepository.deleteAll();
+    memberRepository.delete(member);
   }
 
   @Test
@@ -607,21 +1247,21 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new AddPlayerRequestDto(PlayerMatchStatus.AVAILABLE);
 
@@ -644,6 +1284,82 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
   }
 
+  @Test
+  @DisplayName("Add player available retried with the same idempotency key")
+  void addPlayerIdempotent() throws Exception {
+
+    if (token == null) loginWithUser("MatchUser17");
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    var content =
+        objectMapper.writeValueAsString(new AddPlayerRequestDto(PlayerMatchStatus.AVAILABLE));
+    Supplier<MockHttpServletRequestBuilder> confirm =
+        () ->
+            post("/v1/matches/" + match.getId() + "/players")
+                .header("Authorization", "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(content);
+    var key = UUID.randomUUID().toString();
+
+    mockMvc
+        .perform(confirm.get().header("Idempotency-Key", key))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Idempotent-Replayed"));
+    var version = matchRepository.findVersionById(match.getId()).get();
+
+    mockMvc
+        .perform(confirm.get().header("Idempotency-Key", key))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Idempotent-Replayed", "true"));
+    Assertions.assertEquals(version, matchRepository.findVersionById(match.getId()).get());
+
+    // The same key with a different body is rejected instead of replayed
+    mockMvc
+        .perform(
+            post("/v1/matches/" + match.getId() + "/players")
+                .header("Authorization", "Bearer " + token)
+                .header("Idempotency-Key", key)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    objectMapper.writeValueAsString(
+                        new AddPlayerRequestDto(PlayerMatchStatus.NOT_AVAILABLE))))
+        .andExpect(status().isUnprocessableEntity());
+    Assertions.assertEquals(version, matchRepository.findVersionById(match.getId()).get());
+
+    // Without a key the request runs, but confirming again writes nothing
+    mockMvc
+        .perform(confirm.get())
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist("Idempotent-Replayed"));
+    Assertions.assertEquals(version, matchRepository.findVersionById(match.getId()).get());
+
+    var player = memberRepository.findByNameAndSurname("MatchUser17", "MatchUser17");
+    Assertions.assertTrue(
+        matchRepository
+            .findById(match.getId())
+            .get()
+            .getConfirmedPlayers()
+            .contains(player.get().getId()));
+
+    matchRepository.deleteAll();
+  }
+
   @Test
   @DisplayName("Add player not available")
   void addPlayerNotAvailable() throws Exception {
@@ -652,21 +1368,21 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new AddPlayerRequestDto(PlayerMatchStatus.NOT_AVAILABLE);
 
@@ -706,6 +1422,7 @@ public class MatchControllerTest {
     memberRepository.save(
         MemberEntity.builder()
             .id(member.getId())
+            .version(member.getVersion())
             .name(member.getName())
             .alias(member.getAlias())
             .surname(member.getSurname())
@@ -720,21 +1437,21 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(
-                    memberRepository.findAll().stream()
-                        .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
-                        .map(MemberEntity::getId)
-                        .collect(Collectors.toSet()))
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                memberRepository.findAll().stream()
+                    .filter(memberEntity -> !adminUser.equals(memberEntity.getName()))
+                    .map(MemberEntity::getId)
+                    .collect(Collectors.toSet()),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new AddPlayerRequestDto(PlayerMatchStatus.AVAILABLE);
 
@@ -792,17 +1509,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(players)
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                players,
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -840,17 +1558,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                players,
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -863,6 +1582,185 @@ public class MatchControllerTest {
     memberRepository.delete(player);
   }
 
+  @Test
+  @DisplayName("Set lineup")
+  void setLineup() throws Exception {
+
+    if (adminToken == null) loginWithAdmin();
+
+    var players =
+        memberRepository.saveAll(
+            List.of(
+                MemberEntity.builder()
+                    .name("lineup1")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .build(),
+                MemberEntity.builder()
+                    .name("lineup2")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .build(),
+                MemberEntity.builder()
+                    .name("lineup3")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .build()));
+    var ids = players.stream().map(MemberEntity::getId).toList();
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                ids,
+                new HashSet<>(),
+                new HashSet<>(),
+                List.of(ids.get(2)),
+                new ArrayList<>(),
+                List.of("oldGuest"),
+                new ArrayList<>(),
+                ids.get(2),
+                null,
+                false));
+
+    var lineup =
+        new LineupRequestDto(
+            List.of(ids.get(0)),
+            List.of(ids.get(1), ids.get(2)),
+            List.of("guestA"),
+            List.of("guestB"),
+            ids.get(0),
+            ids.get(1));
+
+    mockMvc
+        .perform(
+            put("/v1/matches/" + match.getId() + "/lineup")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(lineup)))
+        .andExpect(status().isOk());
+
+    var matchFromDB = matchRepository.findById(match.getId()).get();
+
+    Assertions.assertEquals(List.of(ids.get(0)), matchFromDB.getTeamAPlayers());
+    Assertions.assertEquals(
+        Set.of(ids.get(1), ids.get(2)), new HashSet<>(matchFromDB.getTeamBPlayers()));
+    Assertions.assertEquals(List.of("guestA"), matchFromDB.getTeamAGuests());
+    Assertions.assertEquals(List.of("guestB"), matchFromDB.getTeamBGuests());
+    Assertions.assertEquals(ids.get(0), matchFromDB.getCaptainTeamA());
+    Assertions.assertEquals(ids.get(1), matchFromDB.getCaptainTeamB());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteAll(players);
+  }
+
+  @Test
+  @DisplayName("Set lineup with a player not confirmed")
+  void setLineupPlayerNotConfirmed() throws Exception {
+
+    if (adminToken == null) loginWithAdmin();
+
+    var player =
+        memberRepository.save(
+            MemberEntity.builder()
+                .name("lineup4")
+                .surname("test")
+                .password("test")
+                .phone("")
+                .role(Role.USER)
+                .build());
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                List.of(player.getId()),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    var lineup =
+        new LineupRequestDto(List.of(player.getId()), List.of(), List.of(), List.of(), null, null);
+
+    mockMvc
+        .perform(
+            put("/v1/matches/" + match.getId() + "/lineup")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(lineup)))
+        .andExpect(status().isBadRequest());
+
+    var matchFromDB = matchRepository.findById(match.getId()).get();
+
+    Assertions.assertTrue(matchFromDB.getTeamAPlayers().isEmpty());
+
+    matchRepository.deleteAll();
+    memberRepository.delete(player);
+  }
+
+  @Test
+  @DisplayName("Set lineup with a null player id")
+  void setLineupNullPlayer() throws Exception {
+
+    if (adminToken == null) loginWithAdmin();
+
+    var player =
+        memberRepository.save(
+            MemberEntity.builder()
+                .name("lineup5")
+                .surname("test")
+                .password("test")
+                .phone("")
+                .role(Role.USER)
+                .build());
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                List.of(player.getId()),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    var lineup =
+        new LineupRequestDto(
+            Arrays.asList(player.getId(), null), List.of(), List.of(), List.of(), null, null);
+
+    mockMvc
+        .perform(
+            put("/v1/matches/" + match.getId() + "/lineup")
+                .header("Authorization", "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(lineup)))
+        .andExpect(status().isBadRequest());
+
+    var matchFromDB = matchRepository.findById(match.getId()).get();
+
+    Assertions.assertTrue(matchFromDB.getTeamAPlayers().isEmpty());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteById(player.getId());
+  }
+
   @Test
   @DisplayName("Add player to team A player doesn't exist")
   void addPlayerTeamAPlayerNotExist() throws Exception {
@@ -873,17 +1771,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                players,
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -956,17 +1855,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(players)
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                players,
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1004,17 +1904,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                players,
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1037,17 +1938,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(players)
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                players,
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1120,17 +2022,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(players)
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                players,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1168,17 +2071,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(players)
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                players,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1203,17 +2107,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new GuestRequestDto("guest");
 
@@ -1241,17 +2146,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new GuestRequestDto("guest");
 
@@ -1279,17 +2185,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(List.of("guest"))
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                List.of("guest"),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     var request = new GuestRequestDto("guest");
 
@@ -1317,17 +2224,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(new HashSet<>())
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(List.of("guest"))
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                new HashSet<>(),
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                List.of("guest"),
+                null,
+                null,
+                false));
 
     var request = new GuestRequestDto("guest");
 
@@ -1460,17 +2368,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(players)
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(players.stream().toList())
-                .teamBPlayers(new ArrayList<>())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                players,
+                new HashSet<>(),
+                new HashSet<>(),
+                players.stream().toList(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1528,17 +2437,18 @@ public class MatchControllerTest {
 
     var match =
         matchRepository.save(
-            MatchEntity.builder()
-                .matchDay(LocalDate.now().plusDays(7))
-                .confirmedPlayers(players)
-                .notAvailablePlayers(new HashSet<>())
-                .unConfirmedPlayers(new HashSet<>())
-                .teamAPlayers(new ArrayList<>())
-                .teamBPlayers(players.stream().toList())
-                .teamAGuests(new ArrayList<>())
-                .teamBGuests(new ArrayList<>())
-                .closed(false)
-                .build());
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                players,
+                new HashSet<>(),
+                new HashSet<>(),
+                new ArrayList<>(),
+                players.stream().toList(),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
 
     mockMvc
         .perform(
@@ -1554,4 +2464,158 @@ public class MatchControllerTest {
     matchRepository.deleteAll();
     memberRepository.deleteAll(members);
   }
+
+  @Test
+  @DisplayName("Pick captains for both teams")
+  void pickCaptains() throws Exception {
+
+    if (adminToken == null) loginWithAdmin();
+
+    var members =
+        memberRepository.saveAll(
+            List.of(
+                MemberEntity.builder()
+                    .name("captains1")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .nCaptaincies(0)
+                    .build(),
+                MemberEntity.builder()
+                    .name("captains2")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .nCaptaincies(3)
+                    .build(),
+                MemberEntity.builder()
+                    .name("captains3")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .nCaptaincies(3)
+                    .build(),
+                MemberEntity.builder()
+                    .name("captains4")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .nCaptaincies(1)
+                    .build()));
+    var ids = members.stream().map(MemberEntity::getId).toList();
+
+    var match =
+        matchRepository.save(
+            buildMatch(
+                LocalDate.now().plusDays(7),
+                ids,
+                new HashSet<>(),
+                new HashSet<>(),
+                List.of(ids.get(0), ids.get(1)),
+                List.of(ids.get(2), ids.get(3)),
+                new ArrayList<>(),
+                new ArrayList<>(),
+                null,
+                null,
+                false));
+
+    mockMvc
+        .perform(
+            post("/v1/matches/" + match.getId() + "/captains")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+
+    var matchFromDB = matchRepository.findById(match.getId()).get();
+
+    Assertions.assertEquals(ids.get(0), matchFromDB.getCaptainTeamA());
+    Assertions.assertEquals(ids.get(3), matchFromDB.getCaptainTeamB());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteAll(members);
+  }
+
+  @Test
+  @DisplayName("Generate balanced teams with a seed")
+  void generateTeams() throws Exception {
+
+    if (adminToken == null) loginWithAdmin();
+
+    var ratings = List.of(9, 8, 6, 5, 3, 2, 7);
+    var members =
+        memberRepository.saveAll(
+            ratings.stream()
+                .map(
+                    rating ->
+                        MemberEntity.builder()
+                            .name("generate" + rating)
+                            .surname("test")
+                            .password("test")
+                            .phone("")
+                            .role(Role.USER)
+                            .rating(rating)
+                            .build())
+                .toList());
+    var ids = members.stream().map(MemberEntity::getId).toList();
+
+    var match =
+        buildMatch(
+            LocalDate.now().plusDays(7),
+            ids,
+            new HashSet<>(),
+            new HashSet<>(),
+            new ArrayList<>(),
+            new ArrayList<>(),
+            List.of("generateGuest"),
+            new ArrayList<>(),
+            null,
+            null,
+            false);
+    match = matchRepository.save(match);
+
+    var first = generate(match.getId(), false);
+    var second = generate(match.getId(), false);
+
+    Assertions.assertEquals(first, second);
+    Assertions.assertEquals(42L, first.seed());
+    var teamASize = first.teamAPlayers().size() + first.teamAGuests().size();
+    var teamBSize = first.teamBPlayers().size() + first.teamBGuests().size();
+    Assertions.assertEquals(8, teamASize + teamBSize);
+    Assertions.assertEquals(teamASize, teamBSize);
+    Assertions.assertTrue(Math.abs(first.teamAStrength() - first.teamBStrength()) <= 1);
+
+    generate(match.getId(), true);
+
+    var matchFromDB = matchRepository.findById(match.getId()).get();
+    Assertions.assertEquals(
+        first.teamAPlayers().stream().map(MatchPlayerDto::id).collect(Collectors.toSet()),
+        new HashSet<>(matchFromDB.getTeamAPlayers()));
+    Assertions.assertEquals(
+        first.teamBPlayers().stream().map(MatchPlayerDto::id).collect(Collectors.toSet()),
+        new HashSet<>(matchFromDB.getTeamBPlayers()));
+    Assertions.assertEquals(first.teamAGuests(), matchFromDB.getTeamAGuests());
+
+    matchRepository.deleteAll();
+    memberRepository.deleteAll(members);
+  }
+
+  private GeneratedTeamsDto generate(long matchId, boolean apply) throws Exception {
+    var content =
+        mockMvc
+            .perform(
+                post("/v1/matches/" + matchId + "/teams")
+                    .param("seed", "42")
+                    .param("apply", String.valueOf(apply))
+                    .header("Authorization", "Bearer " + adminToken)
+                    .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return objectMapper.readValue(content, GeneratedTeamsDto.class);
+  }
 }
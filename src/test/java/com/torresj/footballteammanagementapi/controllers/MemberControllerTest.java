@@ -5,6 +5,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -17,9 +18,12 @@ import com.torresj.footballteammanagementapi.enums.Role;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
 import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.services.MovementService;
 
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +45,7 @@ public class MemberControllerTest {
   @Autowired private ObjectMapper objectMapper;
   @Autowired private MemberRepository memberRepository;
   @Autowired private MovementRepository movementRepository;
+  @Autowired private MovementService movementService;
   @Autowired private PasswordEncoder passwordEncoder;
 
   @Value("${admin.user}")
@@ -80,8 +85,8 @@ public class MemberControllerTest {
     var entity =
         memberRepository
             .findByNameAndSurname(name, name)
-            .orElse(
-                memberRepository.save(
+            .orElseGet(
+                () -> memberRepository.save(
                     MemberEntity.builder()
                         .role(Role.USER)
                         .phone("")
@@ -115,20 +120,65 @@ public class MemberControllerTest {
         memberRepository.saveAll(
             List.of(
                 MemberEntity.builder()
-                    .name("test1")
+                    .name("allMembers1")
                     .surname("test1")
                     .password("test1")
                     .phone("")
                     .role(Role.USER)
                     .build(),
                 MemberEntity.builder()
-                    .name("test2")
+                    .name("allMembers2")
                     .surname("test2")
                     .password("test2")
                     .phone("")
                     .role(Role.USER)
                     .build()));
 
+    var movements =
+        List.of(
+            movementService.create(membersEntities.get(0).getId(), MovementType.EXPENSE, -30, ""),
+            movementService.create(membersEntities.get(0).getId(), MovementType.INCOME, 20, ""));
+
+    if (adminToken == null) loginWithAdmin();
+
+    var result =
+        mockMvc
+            .perform(
+                get("/v1/members")
+                    .param("search", "allMembers")
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk());
+
+    var content = result.andReturn().getResponse().getContentAsString();
+    List<MemberDto> members = objectMapper.readValue(content, new TypeReference<>() {});
+
+    Assertions.assertEquals(2, members.size());
+    var balances =
+        members.stream().collect(Collectors.toMap(MemberDto::id, MemberDto::balance));
+    Assertions.assertEquals(-10, balances.get(membersEntities.get(0).getId()), 0);
+    Assertions.assertEquals(0, balances.get(membersEntities.get(1).getId()), 0);
+    movements.forEach(movement -> movementService.delete(movement.id()));
+    Assertions.assertEquals(0, movementService.getBalance(membersEntities.get(0).getId()));
+    memberRepository.deleteAll(membersEntities);
+  }
+
+  @Test
+  @DisplayName("Get members without a page returns the first page")
+  void getMembersDefaultPage() throws Exception {
+    var membersEntities =
+        memberRepository.saveAll(
+            IntStream.range(0, 21)
+                .mapToObj(
+                    i ->
+                        MemberEntity.builder()
+                            .name("defaultPage" + i)
+                            .surname("test")
+                            .password("test")
+                            .phone("")
+                            .role(Role.USER)
+                            .build())
+                .toList());
+
     if (adminToken == null) loginWithAdmin();
 
     var result =
@@ -139,10 +189,109 @@ public class MemberControllerTest {
     var content = result.andReturn().getResponse().getContentAsString();
     List<MemberDto> members = objectMapper.readValue(content, new TypeReference<>() {});
 
-    Assertions.assertTrue(members.size() >= 2);
+    Assertions.assertEquals(20, members.size());
+    Assertions.assertTrue(
+        Long.parseLong(result.andReturn().getResponse().getHeader("X-Total-Count")) >= 21);
     memberRepository.deleteAll(membersEntities);
   }
 
+  @Test
+  @DisplayName("Get members filtered, sorted and paged")
+  void getMembersDirectory() throws Exception {
+    var membersEntities =
+        memberRepository.saveAll(
+            List.of(
+                MemberEntity.builder()
+                    .name("directory1")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .build(),
+                MemberEntity.builder()
+                    .name("directory2")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .nCaptaincies(4)
+                    .build(),
+                MemberEntity.builder()
+                    .name("directory3")
+                    .surname("test")
+                    .password("test")
+                    .phone("")
+                    .role(Role.USER)
+                    .injured(true)
+                    .build()));
+    var movements =
+        List.of(
+            movementService.create(membersEntities.get(0).getId(), MovementType.EXPENSE, -5, ""),
+            movementService.create(membersEntities.get(1).getId(), MovementType.EXPENSE, -20, ""));
+
+    if (adminToken == null) loginWithAdmin();
+
+    var result =
+        mockMvc
+            .perform(
+                get("/v1/members?search=Directory&sort=BALANCE&page=0&elements=2")
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "3"));
+    List<MemberDto> members =
+        objectMapper.readValue(
+            result.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+    Assertions.assertEquals(
+        List.of(membersEntities.get(1).getId(), membersEntities.get(0).getId()),
+        members.stream().map(MemberDto::id).toList());
+    Assertions.assertEquals(-20, members.get(0).balance(), 0);
+
+    result =
+        mockMvc
+            .perform(
+                get("/v1/members?search=directory&injured=false&balanceBelow=-10")
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk());
+    members =
+        objectMapper.readValue(
+            result.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+    Assertions.assertEquals(
+        List.of(membersEntities.get(1).getId()), members.stream().map(MemberDto::id).toList());
+
+    // Members without movements have a zero balance
+    result =
+        mockMvc
+            .perform(
+                get("/v1/members?search=directory&balanceBelow=1")
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk());
+    members =
+        objectMapper.readValue(
+            result.andReturn().getResponse().getContentAsString(), new TypeReference<>() {});
+
+    Assertions.assertEquals(3, members.size());
+
+    movements.forEach(movement -> movementService.delete(movement.id()));
+    memberRepository.deleteAll(membersEntities);
+  }
+
+  @Test
+  @DisplayName("Get members with an invalid page")
+  void getMembersInvalidPage() throws Exception {
+    if (adminToken == null) loginWithAdmin();
+
+    var invalid =
+        List.of(
+            "page=0", "elements=5", "page=0&elements=0", "page=-1&elements=5", "page=0&elements=101");
+    for (var params : invalid) {
+      mockMvc
+          .perform(get("/v1/members?" + params).header("Authorization", "Bearer " + adminToken))
+          .andExpect(status().isBadRequest());
+    }
+  }
+
   @Test
   @DisplayName("Get member by ID")
   void getMemberById() throws Exception {
@@ -167,6 +316,43 @@ public class MemberControllerTest {
     memberRepository.delete(memberEntity);
   }
 
+  @Test
+  @DisplayName("Get member by ID not modified")
+  void getMemberByIdNotModified() throws Exception {
+    var memberEntity =
+        memberRepository.save(
+            MemberEntity.builder()
+                .name("etagMember")
+                .surname("etagMember")
+                .password("etagMember")
+                .phone("")
+                .role(Role.USER)
+                .build());
+
+    if (adminToken == null) loginWithAdmin();
+
+    var eTag =
+        mockMvc
+            .perform(
+                get("/v1/members/" + memberEntity.getId())
+                    .header("Authorization", "Bearer " + adminToken))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    Assertions.assertNotNull(eTag);
+
+    mockMvc
+        .perform(
+            get("/v1/members/" + memberEntity.getId())
+                .header("Authorization", "Bearer " + adminToken)
+                .header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+
+    memberRepository.delete(memberEntity);
+  }
+
   @Test
   @DisplayName("Get logged member")
   void getMe() throws Exception {
@@ -223,6 +409,8 @@ public class MemberControllerTest {
                 .description("")
                 .amount(20)
                 .build()));
+    // Written behind the service's back, so the running balance only catches up on reconcile
+    movementService.reconcileBalances();
 
     if (adminToken == null) loginWithAdmin();
 
@@ -399,6 +587,48 @@ public class MemberControllerTest {
         .andExpect(status().isNotFound());
   }
 
+  @Test
+  @DisplayName("Update member onto a taken username")
+  void updateMemberUsernameTaken() throws Exception {
+    var taken =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("taken")
+                .surname("name")
+                .build());
+    var entity =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("renamed")
+                .surname("name")
+                .build());
+    var updateDto = new UpdateMemberDto("Taken", "", "Name", "", Role.USER, 0);
+
+    if (adminToken == null) loginWithAdmin();
+
+    mockMvc
+        .perform(
+            put("/v1/members/" + entity.getId())
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updateDto)))
+        .andExpect(status().isConflict());
+
+    var member = memberRepository.findById(entity.getId());
+    Assertions.assertTrue(member.isPresent());
+    Assertions.assertEquals("renamed", member.get().getName());
+
+    memberRepository.deleteById(entity.getId());
+    memberRepository.deleteById(taken.getId());
+  }
+
   @Test
   @DisplayName("Update member without admin role")
   void updateMemberWithoutAdminRole() throws Exception {
@@ -421,7 +651,7 @@ public class MemberControllerTest {
   void updateMemberPassword() throws Exception {
     var updateDto = new UpdatePasswordDto("test2");
 
-    if (token == null) loginWithUser("user5");
+    if (token == null) loginWithUser("passwordUser");
 
     mockMvc
         .perform(
@@ -556,6 +786,85 @@ public class MemberControllerTest {
     memberRepository.deleteById(entity.getId());
   }
 
+  @Test
+  @DisplayName("Update member injured status keeps the other columns")
+  void updateMemberInjuredStatusKeepsColumns() throws Exception {
+    var entity =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("injuredKeeps")
+                .surname("test")
+                .alias("alias")
+                .nCaptaincies(2)
+                .injured(false)
+                .blocked(true)
+                .build());
+    var request = new RequestInjuredDto(true);
+
+    if (adminToken == null) loginWithAdmin();
+
+    mockMvc
+        .perform(
+            patch("/v1/members/" + entity.getId() + "/injured")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isOk());
+
+    var member = memberRepository.findById(entity.getId()).get();
+    Assertions.assertTrue(member.isInjured());
+    Assertions.assertTrue(member.isBlocked());
+    Assertions.assertEquals("alias", member.getAlias());
+    Assertions.assertEquals(2, member.getNCaptaincies());
+    Assertions.assertEquals(entity.getVersion() + 1, member.getVersion());
+
+    memberRepository.deleteById(entity.getId());
+  }
+
+  @Test
+  @DisplayName("Update member rating")
+  void updateMemberRating() throws Exception {
+    var entity =
+        memberRepository.save(
+            MemberEntity.builder()
+                .role(Role.USER)
+                .phone("")
+                .password("test")
+                .name("test")
+                .surname("test")
+                .build());
+
+    if (adminToken == null) loginWithAdmin();
+
+    mockMvc
+        .perform(
+            patch("/v1/members/" + entity.getId() + "/rating")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RequestRatingDto(11))))
+        .andExpect(status().isBadRequest());
+
+    mockMvc
+        .perform(
+            patch("/v1/members/" + entity.getId() + "/rating")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RequestRatingDto(8))))
+        .andExpect(status().isOk());
+
+    var member = memberRepository.findById(entity.getId());
+    Assertions.assertTrue(member.isPresent());
+    Assertions.assertEquals(8, member.get().getRating());
+
+    memberRepository.deleteById(entity.getId());
+  }
+
   @Test
   @DisplayName("Delete member")
   void deleteMember() throws Exception {
@@ -598,5 +907,6 @@ public class MemberControllerTest {
     mockMvc
         .perform(delete("/v1/members/" + entity.getId()).header("Authorization", "Bearer " + token))
         .andExpect(status().isForbidden());
+    memberRepository.delete(entity);
   }
 }
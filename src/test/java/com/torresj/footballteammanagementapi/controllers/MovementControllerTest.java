@@ -13,8 +13,13 @@ import com.torresj.footballteammanagementapi.enums.Role;
 import com.torresj.footballteammanagementapi.exceptions.MemberNotFoundException;
 import com.torresj.footballteammanagementapi.repositories.MemberRepository;
 import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.services.MovementService;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import org.json.JSONObject;
 import org.junit.jupiter.api.*;
@@ -43,6 +48,8 @@ public class MovementControllerTest {
     @Autowired
     private MovementRepository movementRepository;
     @Autowired
+    private MovementService movementService;
+    @Autowired
     private PasswordEncoder passwordEncoder;
 
     @Value("${admin.user}")
@@ -82,8 +89,8 @@ public class MovementControllerTest {
         var entity =
                 memberRepository
                         .findByNameAndSurname(name, name)
-                        .orElse(
-                                memberRepository.save(
+                        .orElseGet(
+                                () -> memberRepository.save(
                                         MemberEntity.builder()
                                                 .role(Role.USER)
                                                 .phone("")
@@ -578,4 +585,38 @@ public class MovementControllerTest {
                 .perform(delete("/v1/movements/1234").header("Authorization", "Bearer " + token))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    @DisplayName("Concurrent first movements of a member open a single balance")
+    void concurrentFirstMovements() throws Exception {
+        var member = memberRepository.save(
+                MemberEntity.builder()
+                        .role(Role.USER)
+                        .phone("")
+                        .password("test")
+                        .name("balanceRace")
+                        .surname("test")
+                        .build());
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var writes = IntStream.range(0, 4)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return movementService.create(member.getId(), MovementType.EXPENSE, -5, "");
+                    }))
+                    .toList();
+            start.countDown();
+            for (var write : writes) write.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(-20, movementService.getBalance(member.getId()));
+        Assertions.assertEquals(
+                4, movementRepository.findByMemberId(member.getId(), Sort.unsorted()).size());
+
+        movementRepository.deleteAll(movementRepository.findByMemberId(member.getId(), Sort.unsorted()));
+        memberRepository.delete(member);
+    }
 }
@@ -85,8 +85,8 @@ public class TeamMovementControllerTest {
         var entity =
                 memberRepository
                         .findByNameAndSurname(name, name)
-                        .orElse(
-                                memberRepository.save(
+                        .orElseGet(
+                                () -> memberRepository.save(
                                         MemberEntity.builder()
                                                 .role(Role.USER)
                                                 .phone("")
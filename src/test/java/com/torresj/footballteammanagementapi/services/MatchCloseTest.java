@@ -0,0 +1,68 @@
+package com.torresj.footballteammanagementapi.services;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.torresj.footballteammanagementapi.entities.MatchEntity;
+import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.OutboxEventRepository;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class MatchCloseTest {
+
+  @Autowired private MatchService matchService;
+
+  @Autowired private OutboxEventRepository outboxEventRepository;
+
+  @SpyBean private MatchRepository matchRepository;
+
+  @Value("${matches.close.max-attempts}")
+  private int maxAttempts;
+
+  @Test
+  @DisplayName("A match that fails to close is retried and isolated from the others")
+  void closePastMatchesIsolatesFailures() {
+    var matches =
+        matchRepository.saveAll(
+            List.of(
+                MatchEntity.builder().matchDay(LocalDate.now().minusDays(21)).build(),
+                MatchEntity.builder().matchDay(LocalDate.now().minusDays(14)).build(),
+                MatchEntity.builder().matchDay(LocalDate.now().minusDays(7)).build()));
+    var broken = matches.get(1).getId();
+
+    doThrow(new TransientDataAccessResourceException("broken"))
+        .when(matchRepository)
+        .findById(broken);
+
+    var report = matchService.closePastMatches();
+
+    Assertions.assertEquals(2, report.matchesClosed());
+    Assertions.assertEquals(List.of(broken), List.copyOf(report.failures().keySet()));
+    Assertions.assertTrue(report.failures().get(broken).contains("broken"));
+    verify(matchRepository, times(maxAttempts)).findById(broken);
+
+    reset(matchRepository);
+    matches.forEach(
+        match ->
+            Assertions.assertEquals(
+                !match.getId().equals(broken),
+                matchRepository.findById(match.getId()).get().isClosed()));
+
+    outboxEventRepository.deleteAll();
+    matchRepository.deleteAll();
+  }
+}
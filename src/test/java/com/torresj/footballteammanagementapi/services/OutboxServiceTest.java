@@ -0,0 +1,197 @@
+package com.torresj.footballteammanagementapi.services;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.torresj.footballteammanagementapi.entities.MatchEntity;
+import com.torresj.footballteammanagementapi.entities.MatchParticipantEntity;
+import com.torresj.footballteammanagementapi.entities.MemberEntity;
+import com.torresj.footballteammanagementapi.entities.OutboxEventEntity;
+import com.torresj.footballteammanagementapi.enums.ParticipantStatus;
+import com.torresj.footballteammanagementapi.enums.Role;
+import com.torresj.footballteammanagementapi.repositories.MatchRepository;
+import com.torresj.footballteammanagementapi.repositories.MemberRepository;
+import com.torresj.footballteammanagementapi.repositories.MovementRepository;
+import com.torresj.footballteammanagementapi.repositories.OutboxEventRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class OutboxServiceTest {
+
+  @Autowired private OutboxService outboxService;
+
+  @Autowired private OutboxEventRepository outboxEventRepository;
+
+  @Autowired private MatchRepository matchRepository;
+
+  @Autowired private MemberRepository memberRepository;
+
+  @Autowired private MovementRepository movementRepository;
+
+  @SpyBean private MatchService matchService;
+
+  @Value("${outbox.max-attempts}")
+  private int maxAttempts;
+
+  private final ArrayList<Long> members = new ArrayList<>();
+
+  @AfterEach
+  void cleanUp() {
+    doCallRealMethod().when(matchService).applyClose(anyLong());
+    clearInvocations(matchService);
+    movementRepository.deleteAll();
+    outboxEventRepository.deleteAll();
+    matchRepository.deleteAll();
+    memberRepository.deleteAllById(members);
+    members.clear();
+  }
+
+  // Closes a past match where the given member never answered, queueing its MATCH_CLOSED event
+  private long closeMatchMissedBy(String name) throws Exception {
+    var member =
+        memberRepository.save(
+            MemberEntity.builder()
+                .name(name)
+                .surname("outbox")
+                .password("test")
+                .phone("")
+                .role(Role.USER)
+                .build());
+    members.add(member.getId());
+
+    var match = MatchEntity.builder().matchDay(LocalDate.now().minusDays(7)).build();
+    match
+        .getParticipants()
+        .add(
+            MatchParticipantEntity.builder()
+                .match(match)
+                .memberId(member.getId())
+                .status(ParticipantStatus.UNCONFIRMED)
+                .build());
+    var matchId = matchRepository.save(match).getId();
+    matchService.close(matchId);
+    return matchId;
+  }
+
+  private OutboxEventEntity eventOf(long matchId) {
+    return outboxEventRepository.findAll().stream()
+        .filter(event -> event.getAggregateId() == matchId)
+        .findFirst()
+        .orElseThrow();
+  }
+
+  // Skips the backoff so the next processPending picks the event up again
+  private void makeDue(long matchId) {
+    outboxEventRepository.save(
+        eventOf(matchId).toBuilder().nextAttemptAt(LocalDateTime.now().minusSeconds(1)).build());
+  }
+
+  private int finesOf(long memberId) {
+    return movementRepository
+        .findByMemberId(memberId, Sort.by(Sort.Direction.DESC, "createdOn"))
+        .size();
+  }
+
+  @Test
+  @DisplayName("A failing event is recorded with backoff and retried")
+  void failingEventIsRetried() throws Exception {
+    var matchId = closeMatchMissedBy("retried");
+    doThrow(new IllegalStateException("boom"))
+        .doCallRealMethod()
+        .when(matchService)
+        .applyClose(matchId);
+
+    Assertions.assertEquals(0, outboxService.processPending());
+
+    var failed = eventOf(matchId);
+    Assertions.assertNull(failed.getProcessedAt());
+    Assertions.assertEquals(1, failed.getAttempts());
+    Assertions.assertTrue(failed.getLastError().contains("boom"));
+    Assertions.assertTrue(failed.getNextAttemptAt().isAfter(LocalDateTime.now()));
+    Assertions.assertEquals(0, finesOf(members.get(0)));
+
+    // Not due until the backoff has passed
+    Assertions.assertEquals(0, outboxService.processPending());
+    verify(matchService, times(1)).applyClose(matchId);
+
+    makeDue(matchId);
+    Assertions.assertEquals(1, outboxService.processPending());
+
+    Assertions.assertNotNull(eventOf(matchId).getProcessedAt());
+    Assertions.assertEquals(1, finesOf(members.get(0)));
+    verify(matchService, times(2)).applyClose(matchId);
+  }
+
+  @Test
+  @DisplayName("An event is abandoned after max-attempts failures")
+  void eventIsAbandonedAfterMaxAttempts() throws Exception {
+    var matchId = closeMatchMissedBy("abandoned");
+    doThrow(new IllegalStateException("boom")).when(matchService).applyClose(matchId);
+
+    for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+      makeDue(matchId);
+      Assertions.assertEquals(0, outboxService.processPending());
+      Assertions.assertEquals(attempt, eventOf(matchId).getAttempts());
+    }
+
+    makeDue(matchId);
+    Assertions.assertEquals(0, outboxService.processPending());
+
+    var abandoned = eventOf(matchId);
+    Assertions.assertNull(abandoned.getProcessedAt());
+    Assertions.assertEquals(maxAttempts, abandoned.getAttempts());
+    verify(matchService, times(maxAttempts)).applyClose(eq(matchId));
+  }
+
+  @Test
+  @DisplayName("Concurrent workers apply the fines of an event exactly once")
+  void concurrentWorkersApplyOnce() throws Exception {
+    var matchId = closeMatchMissedBy("concurrent");
+    var start = new CountDownLatch(1);
+    var pool = Executors.newFixedThreadPool(2);
+    try {
+      var workers = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 2; i++) {
+        workers.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return outboxService.processPending();
+                }));
+      }
+      start.countDown();
+
+      var applied = 0;
+      for (var worker : workers) applied += worker.get(30, TimeUnit.SECONDS);
+
+      Assertions.assertEquals(1, applied);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    Assertions.assertNotNull(eventOf(matchId).getProcessedAt());
+    Assertions.assertEquals(1, finesOf(members.get(0)));
+  }
+}
@@ -0,0 +1,109 @@
+package com.torresj.footballteammanagementapi.utils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RosterBitmapTest {
+
+  private static Set<Long> randomIds(SplittableRandom random, int size, long bound) {
+    return LongStream.generate(() -> random.nextLong(bound))
+        .limit(size)
+        .boxed()
+        .collect(Collectors.toSet());
+  }
+
+  private static void assertRoundTrip(Set<Long> ids) {
+    var bitmap = RosterBitmap.of(ids);
+    var decoded = RosterBitmap.decode(bitmap.encode());
+
+    Assertions.assertEquals(bitmap, decoded);
+    Assertions.assertEquals(ids, decoded.toSet());
+    Assertions.assertEquals(ids.size(), decoded.cardinality());
+    ids.forEach(id -> Assertions.assertTrue(decoded.contains(id)));
+  }
+
+  @Test
+  @DisplayName("Empty roster round trip")
+  void emptyRoundTrip() {
+    assertRoundTrip(Set.of());
+    Assertions.assertTrue(RosterBitmap.decode(null).isEmpty());
+    Assertions.assertTrue(RosterBitmap.decode(new byte[0]).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Sparse roster round trip")
+  void sparseRoundTrip() {
+    var ids = Set.of(1L, 2L, 3L, 40L, 65535L, 65536L, 1_000_000L, (long) Integer.MAX_VALUE);
+    assertRoundTrip(ids);
+
+    var bitmap = RosterBitmap.of(ids);
+    Assertions.assertFalse(bitmap.contains(4L));
+    Assertions.assertFalse(bitmap.contains(-1L));
+    Assertions.assertFalse(bitmap.contains(Integer.MAX_VALUE + 1L));
+    Assertions.assertArrayEquals(
+        new long[] {1, 2, 3, 40, 65535, 65536, 1_000_000, Integer.MAX_VALUE}, bitmap.toArray());
+  }
+
+  @Test
+  @DisplayName("Dense roster round trip")
+  void denseRoundTrip() {
+    var random = new SplittableRandom(42);
+    assertRoundTrip(randomIds(random, 20_000, 1 << 16));
+    assertRoundTrip(randomIds(random, 50_000, 1 << 18));
+    assertRoundTrip(LongStream.range(0, 1 << 16).boxed().collect(Collectors.toSet()));
+  }
+
+  @Test
+  @DisplayName("Small rosters encode compactly")
+  void compactEncoding() {
+    var ids = LongStream.rangeClosed(1, 40).boxed().collect(Collectors.toSet());
+    Assertions.assertTrue(RosterBitmap.of(ids).encode().length <= 4 + 5 + 2 * 40);
+  }
+
+  @Test
+  @DisplayName("Duplicated ids are stored once")
+  void duplicates() {
+    var bitmap = RosterBitmap.of(List.of(5L, 5L, 7L, 5L));
+    Assertions.assertEquals(2, bitmap.cardinality());
+    Assertions.assertEquals(Set.of(5L, 7L), bitmap.toSet());
+  }
+
+  @Test
+  @DisplayName("Negative ids are rejected")
+  void negativeIds() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> RosterBitmap.of(List.of(-1L)));
+  }
+
+  @Test
+  @DisplayName("Set operations match hash sets")
+  void setOperations() {
+    var random = new SplittableRandom(7);
+    for (var sizes : List.of(new int[] {30, 40}, new int[] {5_000, 3_000}, new int[] {20_000, 30})) {
+      var left = randomIds(random, sizes[0], 1 << 17);
+      var right = randomIds(random, sizes[1], 1 << 17);
+      var leftBitmap = RosterBitmap.of(left);
+      var rightBitmap = RosterBitmap.of(right);
+
+      var and = new HashSet<>(left);
+      and.retainAll(right);
+      var or = new HashSet<>(left);
+      or.addAll(right);
+      var andNot = new HashSet<>(left);
+      andNot.removeAll(right);
+
+      Assertions.assertEquals(RosterBitmap.of(and), leftBitmap.and(rightBitmap));
+      Assertions.assertEquals(RosterBitmap.of(or), leftBitmap.or(rightBitmap));
+      Assertions.assertEquals(RosterBitmap.of(andNot), leftBitmap.andNot(rightBitmap));
+      Assertions.assertEquals(RosterBitmap.of(and), rightBitmap.and(leftBitmap));
+      Assertions.assertEquals(RosterBitmap.of(or), rightBitmap.or(leftBitmap));
+      Assertions.assertEquals(and.size(), leftBitmap.and(rightBitmap).cardinality());
+    }
+  }
+}